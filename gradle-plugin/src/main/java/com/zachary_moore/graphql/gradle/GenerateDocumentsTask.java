@@ -0,0 +1,101 @@
+package com.zachary_moore.graphql.gradle;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.IgnoreEmptyDirectories;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.ChangeType;
+import org.gradle.work.FileChange;
+import org.gradle.work.Incremental;
+import org.gradle.work.InputChanges;
+import org.gradle.workers.WorkerExecutor;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the final document of every query file with operations into the output directory.
+ *
+ * Inputs are tracked relative to the source directory, so the task is up to date or loaded from the build cache
+ * wherever the project is checked out. When it does run incrementally only the sources Gradle reports as added or
+ * modified are read and hashed, the index kept from the previous run limits parsing and resolving to those files and
+ * the files importing from them, and only documents which changed are rewritten.
+ */
+@CacheableTask
+public abstract class GenerateDocumentsTask extends DefaultTask {
+
+    @InputFiles
+    @Incremental
+    @IgnoreEmptyDirectories
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getSources();
+
+    /**
+     * Root the sources are under, already covered by their relative paths.
+     */
+    @Internal
+    public abstract DirectoryProperty getSourceDirectory();
+
+    @OutputDirectory
+    public abstract DirectoryProperty getOutputDirectory();
+
+    /**
+     * Index of the previous run, an output so it's restored from the build cache along with the documents.
+     */
+    @OutputFile
+    public abstract RegularFileProperty getIndexFile();
+
+    /**
+     * Doesn't change the output.
+     */
+    @Internal
+    public abstract Property<Integer> getParallelism();
+
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+
+    @Inject
+    protected abstract FileSystemOperations getFileSystemOperations();
+
+    @TaskAction
+    public void generate(InputChanges inputChanges) {
+        List<File> changedSources = new ArrayList<>();
+        if (inputChanges.isIncremental()) {
+            int removed = 0;
+            for (FileChange change : inputChanges.getFileChanges(getSources())) {
+                if (change.getChangeType() == ChangeType.REMOVED) {
+                    removed++;
+                } else if (change.getFile().isFile()) {
+                    changedSources.add(change.getFile());
+                }
+            }
+            getLogger().info("{} source files changed and {} removed", changedSources.size(), removed);
+        } else {
+            // Outputs may be from before a change Gradle couldn't track, start over
+            getFileSystemOperations().delete(spec -> spec.delete(getOutputDirectory(), getIndexFile()));
+        }
+
+        getWorkerExecutor().noIsolation().submit(GenerateDocumentsWork.class, parameters -> {
+            parameters.getSources().from(getSources());
+            parameters.getIncremental().set(inputChanges.isIncremental());
+            parameters.getChangedSources().from(changedSources);
+            parameters.getSourceDirectory().set(getSourceDirectory());
+            parameters.getOutputDirectory().set(getOutputDirectory());
+            parameters.getIndexFile().set(getIndexFile());
+            parameters.getParallelism().set(getParallelism());
+        });
+    }
+}
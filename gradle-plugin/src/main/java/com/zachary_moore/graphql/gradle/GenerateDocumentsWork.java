@@ -0,0 +1,82 @@
+package com.zachary_moore.graphql.gradle;
+
+import com.zachary_moore.graphql.DocumentWriter;
+import com.zachary_moore.graphql.GenerationOptions;
+import com.zachary_moore.graphql.IncrementalDocumentReader;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One run of {@link IncrementalDocumentReader}, done on a Gradle worker.
+ *
+ * Imports have to be resolved against every exported fragment at once, so rather than splitting the files across
+ * several work items, each re-parsing the libraries they share, a single item resolves on as many threads as the
+ * task's parallelism.
+ */
+public abstract class GenerateDocumentsWork implements WorkAction<GenerateDocumentsWork.Parameters> {
+
+    private static final Logger LOGGER = Logging.getLogger(GenerateDocumentsWork.class);
+
+    public interface Parameters extends WorkParameters {
+
+        ConfigurableFileCollection getSources();
+
+        /**
+         * True if the task runs incrementally, and only {@link #getChangedSources()} can differ from the index.
+         */
+        Property<Boolean> getIncremental();
+
+        /**
+         * Sources added or modified since the previous run, removed sources are simply missing from the sources.
+         */
+        ConfigurableFileCollection getChangedSources();
+
+        DirectoryProperty getSourceDirectory();
+
+        DirectoryProperty getOutputDirectory();
+
+        RegularFileProperty getIndexFile();
+
+        Property<Integer> getParallelism();
+    }
+
+    @Override
+    public void execute() {
+        Parameters parameters = getParameters();
+        String rootPath = parameters.getSourceDirectory().get().getAsFile().getPath();
+        List<File> files = new ArrayList<>(parameters.getSources().getFiles());
+        GenerationOptions options = GenerationOptions.newOptions()
+                .preScan(true)
+                .parallelism(parameters.getParallelism().get())
+                .build();
+
+        IncrementalDocumentReader.Result result = IncrementalDocumentReader.generateDocuments(
+                files,
+                rootPath,
+                parameters.getIndexFile().get().getAsFile().toPath(),
+                options,
+                parameters.getIncremental().get() ? parameters.getChangedSources().getFiles() : null);
+
+        DocumentWriter writer = new DocumentWriter(rootPath, parameters.getOutputDirectory().get().getAsFile().toPath());
+        int written = writer.writeAll(result.getChangedDocuments());
+        for (String removedDocument : result.getRemovedDocuments()) {
+            writer.delete(removedDocument);
+        }
+        LOGGER.info("Hashed {} and parsed {} of {} files, wrote {} documents and removed {}",
+                result.getHashedFileCount(),
+                result.getParsedFileCount(),
+                files.size(),
+                written,
+                result.getRemovedDocuments().size());
+    }
+}
@@ -0,0 +1,25 @@
+package com.zachary_moore.graphql.gradle;
+
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.Property;
+
+/**
+ * The {@code graphqlImport} block of a build script.
+ */
+public abstract class GraphQLImportExtension {
+
+    /**
+     * Root of the query files, import paths are relative to it. Defaults to {@code src/main/graphql}.
+     */
+    public abstract DirectoryProperty getSourceDirectory();
+
+    /**
+     * Where final documents are written, mirroring the source directory. Defaults to {@code build/generated/graphql}.
+     */
+    public abstract DirectoryProperty getOutputDirectory();
+
+    /**
+     * Threads to resolve with. Defaults to the build's maximum number of workers.
+     */
+    public abstract Property<Integer> getParallelism();
+}
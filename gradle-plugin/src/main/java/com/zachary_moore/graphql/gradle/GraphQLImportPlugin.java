@@ -0,0 +1,33 @@
+package com.zachary_moore.graphql.gradle;
+
+import org.gradle.api.Plugin;
+import org.gradle.api.Project;
+
+/**
+ * Adds the {@code graphqlImport} extension and a {@code generateGraphQLDocuments} task resolving the imports of
+ * every {@code .graphql} file under the source directory.
+ */
+public class GraphQLImportPlugin implements Plugin<Project> {
+
+    static final String EXTENSION_NAME = "graphqlImport";
+    static final String TASK_NAME = "generateGraphQLDocuments";
+
+    @Override
+    public void apply(Project project) {
+        GraphQLImportExtension extension = project.getExtensions().create(EXTENSION_NAME, GraphQLImportExtension.class);
+        extension.getSourceDirectory().convention(project.getLayout().getProjectDirectory().dir("src/main/graphql"));
+        extension.getOutputDirectory().convention(project.getLayout().getBuildDirectory().dir("generated/graphql"));
+        extension.getParallelism().convention(project.getGradle().getStartParameter().getMaxWorkerCount());
+
+        project.getTasks().register(TASK_NAME, GenerateDocumentsTask.class, task -> {
+            task.setGroup("build");
+            task.setDescription("Resolves GraphQL fragment imports into final documents");
+            task.getSourceDirectory().set(extension.getSourceDirectory());
+            task.getSources().from(extension.getSourceDirectory().map(directory ->
+                    directory.getAsFileTree().matching(pattern -> pattern.include("**/*.graphql"))));
+            task.getOutputDirectory().set(extension.getOutputDirectory());
+            task.getIndexFile().set(project.getLayout().getBuildDirectory().file("graphql-import/" + task.getName() + ".index"));
+            task.getParallelism().set(extension.getParallelism());
+        });
+    }
+}
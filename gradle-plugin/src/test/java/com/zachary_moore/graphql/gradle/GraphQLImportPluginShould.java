@@ -0,0 +1,106 @@
+package com.zachary_moore.graphql.gradle;
+
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class GraphQLImportPluginShould {
+
+    private static final String TASK = ":" + GraphQLImportPlugin.TASK_NAME;
+
+    private static final String USER_FRAGMENT =
+            "fragment author on User @export {\n" +
+                    "    first_name\n" +
+                    "}";
+
+    private static final String QUERY_A =
+            "query A {\n" +
+                    "    Tweet(id: 1) {\n" +
+                    "        ...author @import(from: \"userFragment\")\n" +
+                    "    }\n" +
+                    "}";
+
+    private static final String QUERY_B =
+            "query B {\n" +
+                    "    Tweet(id: 2) {\n" +
+                    "        id\n" +
+                    "    }\n" +
+                    "}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void reuseOutputsOfUnchangedSources() throws Exception {
+        write("settings.gradle", "buildCache { local { directory = file('build-cache') } }");
+        write("build.gradle", "plugins { id 'com.zachary_moore.graphql-import' }");
+        write("src/main/graphql/userFragment.graphql", USER_FRAGMENT);
+        write("src/main/graphql/queries/a.graphql", QUERY_A);
+        write("src/main/graphql/queries/b.graphql", QUERY_B);
+        Path output = folder.getRoot().toPath().resolve("build/generated/graphql");
+
+        assertEquals(TaskOutcome.SUCCESS, run().task(TASK).getOutcome());
+        assertTrue(read(output.resolve("queries/a.graphql")).contains("fragment author on User"));
+        assertTrue(Files.exists(output.resolve("queries/b.graphql")));
+        assertFalse(Files.exists(output.resolve("userFragment.graphql")));
+
+        assertEquals(TaskOutcome.UP_TO_DATE, run().task(TASK).getOutcome());
+
+        write("src/main/graphql/queries/b.graphql", QUERY_B.replace("id: 2", "id: 3"));
+        BuildResult edited = run("--info");
+        assertEquals(TaskOutcome.SUCCESS, edited.task(TASK).getOutcome());
+        assertTrue(edited.getOutput().contains("Hashed 1 and parsed 1 of 3 files, wrote 1 documents and removed 0"));
+        assertTrue(read(output.resolve("queries/b.graphql")).contains("id: 3"));
+
+        Files.delete(folder.getRoot().toPath().resolve("src/main/graphql/queries/a.graphql"));
+        assertEquals(TaskOutcome.SUCCESS, run().task(TASK).getOutcome());
+        assertFalse(Files.exists(output.resolve("queries/a.graphql")));
+
+        deleteRecursively(folder.getRoot().toPath().resolve("build"));
+        assertEquals(TaskOutcome.FROM_CACHE, run().task(TASK).getOutcome());
+        assertTrue(read(output.resolve("queries/b.graphql")).contains("id: 3"));
+    }
+
+    private BuildResult run(String... extraArguments) {
+        String[] arguments = new String[extraArguments.length + 3];
+        arguments[0] = GraphQLImportPlugin.TASK_NAME;
+        arguments[1] = "--build-cache";
+        arguments[2] = "--configuration-cache";
+        System.arraycopy(extraArguments, 0, arguments, 3, extraArguments.length);
+        return GradleRunner.create()
+                .withProjectDir(folder.getRoot())
+                .withPluginClasspath()
+                .withArguments(arguments)
+                .build();
+    }
+
+    private void write(String relativePath,
+                       String content) throws Exception {
+        Path path = folder.getRoot().toPath().resolve(relativePath);
+        Files.createDirectories(path.getParent());
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void deleteRecursively(Path directory) throws Exception {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toArray(Path[]::new)) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static String read(Path path) throws Exception {
+        return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,64 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.AstPrinter;
+import graphql.language.Document;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generating documents with and without tree shaking over a synthetic corpus whose libraries spread a second library
+ * under {@code @include(if: false)}. Setup prints the compact size of every final document for each mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DocumentOptimizerBenchmark {
+
+    @Param({"2", "4"})
+    public int depth;
+
+    @Param({"none", "treeShake", "inline"})
+    public String mode;
+
+    private SyntheticCorpus corpus;
+    private GenerationOptions options;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpus = SyntheticCorpus.newCorpus()
+                .operationFiles(1000)
+                .librariesPerLevel(100)
+                .fanOut(4)
+                .depth(depth)
+                .excludedSpreads(true)
+                .generate();
+        options = GenerationOptions.newOptions()
+                .preScan(true)
+                .treeShake(!mode.equals("none"))
+                .inlineSingleUseFragments(mode.equals("inline"))
+                .build();
+
+        long bytes = 0;
+        for (Document document : DocumentReader.generateDocuments(corpus.getFiles(), corpus.getRootPath(), options).values()) {
+            bytes += AstPrinter.printAstCompact(document).getBytes(StandardCharsets.UTF_8).length;
+        }
+        System.out.println("depth " + depth + ", " + mode + ": " + bytes + " bytes of final documents");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        corpus.delete();
+    }
+
+    @Benchmark
+    public Map<String, Document> generateDocuments() {
+        return DocumentReader.generateDocuments(corpus.getFiles(), corpus.getRootPath(), options);
+    }
+}
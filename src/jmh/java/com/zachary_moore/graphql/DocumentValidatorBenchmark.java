@@ -0,0 +1,78 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.Document;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.SchemaParser;
+import graphql.schema.idl.UnExecutableSchemaGenerator;
+import graphql.validation.Validator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generating documents validated against a schema as they're resolved, against generating them and then running
+ * {@link Validator} over every final document.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DocumentValidatorBenchmark {
+
+    @Param({"1", "4"})
+    public int depth;
+
+    @Param({"4", "32"})
+    public int fragmentSize;
+
+    private SyntheticCorpus corpus;
+    private GraphQLSchema schema;
+    private GenerationOptions options;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpus = SyntheticCorpus.newCorpus()
+                .operationFiles(1000)
+                .librariesPerLevel(100)
+                .fanOut(4)
+                .depth(depth)
+                .fragmentSize(fragmentSize)
+                .generate();
+
+        StringBuilder sdl = new StringBuilder()
+                .append("directive @export on FRAGMENT_DEFINITION\n")
+                .append("directive @import(from: String!) on FRAGMENT_SPREAD\n")
+                .append("type Query {\n    Tweet(id: Int): Tweet\n}\n")
+                .append("type Tweet {\n    Parent: Tweet\n");
+        for (int field = 0; field < fragmentSize; field++) {
+            sdl.append("    field").append(field).append(": String\n");
+        }
+        schema = UnExecutableSchemaGenerator.makeUnExecutableSchema(new SchemaParser().parse(sdl.append("}\n").toString()));
+        options = GenerationOptions.newOptions().preScan(true).schema(schema).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        corpus.delete();
+    }
+
+    @Benchmark
+    public Map<String, Document> validateWhileResolving() {
+        return DocumentReader.generateDocuments(corpus.getFiles(), corpus.getRootPath(), options);
+    }
+
+    @Benchmark
+    public void validateEachDocument(Blackhole blackhole) {
+        for (Document document : DocumentReader.generateDocuments(corpus.getFiles(), corpus.getRootPath()).values()) {
+            if (!new Validator().validateDocument(schema, document).isEmpty()) {
+                throw new IllegalStateException("Invalid document");
+            }
+            blackhole.consume(document);
+        }
+    }
+}
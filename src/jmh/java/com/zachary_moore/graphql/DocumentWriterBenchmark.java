@@ -0,0 +1,73 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.AstPrinter;
+import graphql.language.Document;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Files per second written by {@link DocumentWriter} compared to printing every document and writing it with
+ * {@link Files#write}, for an output directory where nothing or everything changed since the last run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OperationsPerInvocation(DocumentWriterBenchmark.OPERATION_FILES)
+public class DocumentWriterBenchmark {
+
+    static final int OPERATION_FILES = 2000;
+
+    @Param({"true", "false"})
+    public boolean unchanged;
+
+    private SyntheticCorpus corpus;
+    private Map<String, Document> documents;
+    private Path outputDirectory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpus = SyntheticCorpus.generate(OPERATION_FILES, OPERATION_FILES / 10);
+        documents = DocumentReader.generateDocuments(corpus.getFiles(), corpus.getRootPath());
+        outputDirectory = Files.createTempDirectory("graphql-output");
+    }
+
+    @Setup(Level.Invocation)
+    public void clearOutput() throws IOException {
+        if (!unchanged) {
+            FileUtils.cleanDirectory(outputDirectory.toFile());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        corpus.delete();
+        FileUtils.deleteDirectory(outputDirectory.toFile());
+    }
+
+    @Benchmark
+    public int printThenWrite() throws IOException {
+        Path root = Paths.get(corpus.getRootPath());
+        for (Map.Entry<String, Document> document : documents.entrySet()) {
+            Path target = outputDirectory.resolve(root.relativize(Paths.get(document.getKey())).toString());
+            Files.createDirectories(target.getParent());
+            Files.write(target, AstPrinter.printAst(document.getValue()).getBytes(StandardCharsets.UTF_8));
+        }
+        return documents.size();
+    }
+
+    @Benchmark
+    public int documentWriter() {
+        return DocumentWriter.writeDocuments(documents, corpus.getRootPath(), outputDirectory);
+    }
+}
@@ -0,0 +1,85 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.Document;
+import graphql.language.FragmentDefinition;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of namespacing imports over a synthetic corpus: {@link DocumentGenerator#getFinalDocument} over every operation
+ * with a fresh generator, and the whole of {@link DocumentReader#generateDocuments}, with and without renaming.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FragmentNamespacesBenchmark {
+
+    @Param({"1", "4"})
+    public int depth;
+
+    @Param({"false", "true"})
+    public boolean namespaceImports;
+
+    private SyntheticCorpus corpus;
+    private GenerationOptions options;
+    private Map<String, Document> importToDocument;
+    private Map<String, Map<String, FragmentDefinition>> fileImportToExportedFragments;
+    private Map<File, Document> operationDocuments;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpus = SyntheticCorpus.newCorpus()
+                .operationFiles(1000)
+                .librariesPerLevel(100)
+                .fanOut(4)
+                .depth(depth)
+                .generate();
+        options = GenerationOptions.newOptions().preScan(true).namespaceImports(namespaceImports).build();
+
+        ModuleIds moduleIds = new ModuleIds(corpus.getRootPath(), ModuleIdStrategy.dotted());
+        importToDocument = new LinkedHashMap<>();
+        operationDocuments = new LinkedHashMap<>();
+        for (File file : corpus.getFiles()) {
+            Document document = DocumentReader.parseFile(file);
+            importToDocument.put(moduleIds.get(file), document);
+            if (corpus.getOperationFiles().contains(file)) {
+                operationDocuments.put(file, document);
+            }
+        }
+        fileImportToExportedFragments = new HashMap<>();
+        for (Map.Entry<String, Document> entry : importToDocument.entrySet()) {
+            Map<String, FragmentDefinition> exports = ExportParser.getExportedFragments(entry.getValue());
+            if (!exports.isEmpty()) {
+                fileImportToExportedFragments.put(entry.getKey(), exports);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        corpus.delete();
+    }
+
+    @Benchmark
+    public void getFinalDocument(Blackhole blackhole) {
+        DocumentGenerator documentGenerator = new DocumentGenerator(importToDocument, null, namespaceImports);
+        for (Document operation : operationDocuments.values()) {
+            blackhole.consume(documentGenerator.getFinalDocument(operation, fileImportToExportedFragments));
+        }
+    }
+
+    @Benchmark
+    public Map<String, Document> generateDocuments() {
+        return DocumentReader.generateDocuments(corpus.getFiles(), corpus.getRootPath(), options);
+    }
+}
@@ -0,0 +1,55 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.Document;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generating documents with and without a {@link LibraryCache} warmed by earlier runs, as a build server resolving
+ * the same libraries for many roots would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LibraryCacheBenchmark {
+
+    @Param({"100", "1000"})
+    public int librariesPerLevel;
+
+    @Param({"false", "true"})
+    public boolean cached;
+
+    private SyntheticCorpus corpus;
+    private GenerationOptions options;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpus = SyntheticCorpus.newCorpus()
+                .operationFiles(200)
+                .librariesPerLevel(librariesPerLevel)
+                .fanOut(4)
+                .depth(2)
+                .fragmentSize(16)
+                .generate();
+        options = GenerationOptions.newOptions()
+                .preScan(true)
+                .libraryCache(cached ? new LibraryCache(1L << 30) : null)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        corpus.delete();
+    }
+
+    @Benchmark
+    public Map<String, Document> generateDocuments() {
+        return DocumentReader.generateDocuments(corpus.getFiles(), corpus.getRootPath(), options);
+    }
+}
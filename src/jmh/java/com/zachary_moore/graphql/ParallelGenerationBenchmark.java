@@ -0,0 +1,55 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.Document;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scaling of {@link DocumentReader#generateDocuments} with the number of worker threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelGenerationBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"4000"})
+    public int operationFiles;
+
+    private SyntheticCorpus corpus;
+    private ForkJoinPool pool;
+    private GenerationOptions options;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpus = SyntheticCorpus.generate(operationFiles, operationFiles / 10);
+        if (threads > 1) {
+            pool = new ForkJoinPool(threads);
+            options = GenerationOptions.newOptions().preScan(true).executor(pool).build();
+        } else {
+            options = GenerationOptions.newOptions().preScan(true).build();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (pool != null) {
+            pool.shutdown();
+        }
+        corpus.delete();
+    }
+
+    @Benchmark
+    public Map<String, Document> generateDocuments() {
+        return DocumentReader.generateDocuments(corpus.getFiles(), corpus.getRootPath(), options);
+    }
+}
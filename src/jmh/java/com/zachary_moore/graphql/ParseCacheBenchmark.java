@@ -0,0 +1,67 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.Document;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A whole {@link DocumentReader#generateDocuments} run over a 10k file corpus without a parse cache, with an empty
+ * one which every file is parsed and written into, and with one filled by an earlier run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParseCacheBenchmark {
+
+    private static final int OPERATION_FILES = 9000;
+
+    @Param({"none", "cold", "warm"})
+    public String cache;
+
+    private SyntheticCorpus corpus;
+    private Path cacheDirectory;
+    private GenerationOptions options;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpus = SyntheticCorpus.newCorpus()
+                .operationFiles(OPERATION_FILES)
+                .librariesPerLevel(OPERATION_FILES / 9)
+                .fragmentSize(8)
+                .generate();
+        cacheDirectory = Files.createTempDirectory("graphql-parse-cache");
+        options = cache.equals("none")
+                ? GenerationOptions.newOptions().preScan(true).build()
+                : GenerationOptions.newOptions().preScan(true).parseCache(cacheDirectory).build();
+        if (cache.equals("warm")) {
+            DocumentReader.generateDocuments(corpus.getFiles(), corpus.getRootPath(), options);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void clearCache() throws IOException {
+        if (cache.equals("cold")) {
+            FileUtils.cleanDirectory(cacheDirectory.toFile());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        corpus.delete();
+        FileUtils.deleteDirectory(cacheDirectory.toFile());
+    }
+
+    @Benchmark
+    public Map<String, Document> generateDocuments() {
+        return DocumentReader.generateDocuments(corpus.getFiles(), corpus.getRootPath(), options);
+    }
+}
@@ -0,0 +1,63 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.AstPrinter;
+import graphql.language.Document;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PersistedQueryManifest#create} against printing and hashing every final document on its own, over the
+ * final documents of a synthetic corpus where imported fragments are shared between many documents.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistedQueryManifestBenchmark {
+
+    @Param({"1", "4"})
+    public int depth;
+
+    @Param({"4", "32"})
+    public int fragmentSize;
+
+    private SyntheticCorpus corpus;
+    private Map<String, Document> documents;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpus = SyntheticCorpus.newCorpus()
+                .operationFiles(1000)
+                .librariesPerLevel(100)
+                .fanOut(4)
+                .depth(depth)
+                .fragmentSize(fragmentSize)
+                .generate();
+        documents = DocumentReader.generateDocuments(corpus.getFiles(), corpus.getRootPath());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        corpus.delete();
+    }
+
+    @Benchmark
+    public PersistedQueryManifest manifest() {
+        return PersistedQueryManifest.create(documents, corpus.getRootPath());
+    }
+
+    @Benchmark
+    public void printEachDocument(Blackhole blackhole) {
+        for (Document document : documents.values()) {
+            String printed = AstPrinter.printAstCompact(document);
+            blackhole.consume(DocumentIndex.hash(printed.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+}
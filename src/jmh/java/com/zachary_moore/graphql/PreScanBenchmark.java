@@ -0,0 +1,79 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.Document;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DocumentReader#generateDocuments} and {@link DocumentReader#streamDocuments} with and without the pre-scan,
+ * over a mix of importing operations, plain operations, fragment libraries and schema files.
+ *
+ * Setup prints how the files classify and how many parses the pre-scan saves in each mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PreScanBenchmark {
+
+    private static final int FILES = 4000;
+
+    @Param({"true", "false"})
+    public boolean preScan;
+
+    private SyntheticCorpus corpus;
+    private GenerationOptions options;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // 40% importing operations, 30% plain operations, 10% fragment libraries, 20% schema files
+        corpus = SyntheticCorpus.newCorpus()
+                .operationFiles(FILES * 4 / 10)
+                .plainOperationFiles(FILES * 3 / 10)
+                .librariesPerLevel(FILES / 10)
+                .schemaFiles(FILES * 2 / 10)
+                .fragmentSize(8)
+                .generate();
+        options = GenerationOptions.newOptions().preScan(preScan).build();
+
+        Map<PreScan.Kind, Integer> kinds = new EnumMap<>(PreScan.Kind.class);
+        int inert = 0;
+        int notExporting = 0;
+        for (File file : corpus.getFiles()) {
+            PreScan scan = PreScan.scan(PreScan.read(file));
+            kinds.merge(scan.getKind(), 1, Integer::sum);
+            inert += scan.isInert() ? 1 : 0;
+            notExporting += scan.hasExports() ? 0 : 1;
+        }
+        int files = corpus.getFiles().size();
+        // Streaming parses every file to index it and every operation again to resolve it
+        int streamingParses = files + corpus.getOperationFiles().size();
+        System.out.printf("%n%d files: %s%n", files, kinds);
+        System.out.printf("generateDocuments skips %d of %d parses%n", inert, files);
+        System.out.printf("streamDocuments skips %d of %d parses%n", notExporting, streamingParses);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        corpus.delete();
+    }
+
+    @Benchmark
+    public Map<String, Document> generateDocuments() {
+        return DocumentReader.generateDocuments(corpus.getFiles(), corpus.getRootPath(), options);
+    }
+
+    @Benchmark
+    public int streamDocuments() {
+        int[] count = new int[1];
+        DocumentReader.streamDocuments(corpus.getFiles(), corpus.getRootPath(), options, (path, document) -> count[0]++);
+        return count[0];
+    }
+}
@@ -0,0 +1,102 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.Document;
+import graphql.language.FragmentDefinition;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot paths of a run over a synthetic corpus: the whole of {@link DocumentReader#generateDocuments},
+ * {@link ExportParser#getExportedFragments} over every document and {@link DocumentGenerator#getFinalDocument}
+ * over every operation with a fresh generator.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResolutionPipelineBenchmark {
+
+    @Param({"1000"})
+    public int operationFiles;
+
+    @Param({"1", "4"})
+    public int fanOut;
+
+    @Param({"1", "4"})
+    public int depth;
+
+    @Param({"4", "32"})
+    public int fragmentSize;
+
+    private SyntheticCorpus corpus;
+    private Map<String, Document> importToDocument;
+    private Map<String, Map<String, FragmentDefinition>> fileImportToExportedFragments;
+    private List<File> operations;
+    private Map<File, Document> operationDocuments;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpus = SyntheticCorpus.newCorpus()
+                .operationFiles(operationFiles)
+                .librariesPerLevel(operationFiles / 10)
+                .fanOut(fanOut)
+                .depth(depth)
+                .fragmentSize(fragmentSize)
+                .generate();
+
+        ModuleIds moduleIds = new ModuleIds(corpus.getRootPath(), ModuleIdStrategy.dotted());
+        importToDocument = new LinkedHashMap<>();
+        operationDocuments = new LinkedHashMap<>();
+        for (File file : corpus.getFiles()) {
+            Document document = DocumentReader.parseFile(file);
+            importToDocument.put(moduleIds.get(file), document);
+            if (corpus.getOperationFiles().contains(file)) {
+                operationDocuments.put(file, document);
+            }
+        }
+        fileImportToExportedFragments = new HashMap<>();
+        for (Map.Entry<String, Document> entry : importToDocument.entrySet()) {
+            Map<String, FragmentDefinition> exports = ExportParser.getExportedFragments(entry.getValue());
+            if (!exports.isEmpty()) {
+                fileImportToExportedFragments.put(entry.getKey(), exports);
+            }
+        }
+        operations = corpus.getOperationFiles();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        corpus.delete();
+    }
+
+    @Benchmark
+    public Map<String, Document> generateDocuments() {
+        return DocumentReader.generateDocuments(corpus.getFiles(), corpus.getRootPath(),
+                GenerationOptions.newOptions().preScan(true).build());
+    }
+
+    @Benchmark
+    public void getExportedFragments(Blackhole blackhole) {
+        for (Document document : importToDocument.values()) {
+            blackhole.consume(ExportParser.getExportedFragments(document));
+        }
+    }
+
+    @Benchmark
+    public void getFinalDocument(Blackhole blackhole) {
+        DocumentGenerator documentGenerator = new DocumentGenerator(importToDocument);
+        for (File operation : operations) {
+            blackhole.consume(documentGenerator.getFinalDocument(operationDocuments.get(operation), fileImportToExportedFragments));
+        }
+    }
+}
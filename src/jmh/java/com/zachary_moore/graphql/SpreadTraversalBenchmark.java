@@ -0,0 +1,78 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.*;
+import graphql.parser.Parser;
+import graphql.util.TraversalControl;
+import graphql.util.TraverserContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collecting fragment spreads from large nested operations with {@link FragmentSpreads} compared to the
+ * {@link AstTransformer} pass {@link DocumentGenerator} used before.
+ *
+ * Run with -prof gc to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpreadTraversalBenchmark {
+
+    @Param({"3", "6"})
+    public int depth;
+
+    @Param({"4"})
+    public int width;
+
+    private Document document;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StringBuilder operation = new StringBuilder("query Nested {\n");
+        appendSelections(operation, 1);
+        operation.append("}\n");
+        for (int i = 0; i < width; i++) {
+            operation.append("fragment spread").append(i).append(" on Node @export { id }\n");
+        }
+        document = Parser.parse(operation.toString());
+    }
+
+    private void appendSelections(StringBuilder operation,
+                                  int level) {
+        for (int i = 0; i < width; i++) {
+            operation.append("...spread").append(i).append(" @import(from: \"lib.Spreads\")\n");
+            if (level < depth) {
+                operation.append("field").append(i).append(" {\n");
+                appendSelections(operation, level + 1);
+                operation.append("}\n");
+            } else {
+                operation.append("leaf").append(i).append("\n");
+            }
+        }
+    }
+
+    @Benchmark
+    public List<FragmentSpread> astTransformer() {
+        List<FragmentSpread> fragmentSpreads = new ArrayList<>();
+        NodeVisitorStub fragmentSpreadVisitor = new NodeVisitorStub() {
+            @Override
+            public TraversalControl visitFragmentSpread(FragmentSpread fragmentSpread, TraverserContext<Node> context) {
+                fragmentSpreads.add(fragmentSpread);
+                return TraversalControl.CONTINUE;
+            }
+        };
+        new AstTransformer().transform(document, fragmentSpreadVisitor);
+        return fragmentSpreads;
+    }
+
+    @Benchmark
+    public List<FragmentSpread> readOnlyCollection() {
+        return FragmentSpreads.collect(document);
+    }
+}
@@ -0,0 +1,233 @@
+package com.zachary_moore.graphql;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes a tree of generated query files for benchmarks.
+ *
+ * Fragment libraries live under lib/levelN/ and each export a single fragment. Libraries above level 0 import the
+ * fragment of a library one level down, so depth controls the length of the fragment chains. Operations live under
+ * ops/ and each import fanOut fragments from the top level. With excluded spreads libraries above level 0 also spread a
+ * second library one level down under {@code @include(if: false)}. Plain operations under plain/ import nothing and
+ * schema files under schema/ hold type definitions, neither export anything.
+ */
+class SyntheticCorpus {
+
+    private final Path root;
+    private final List<File> files;
+    private final List<File> operationFiles;
+    private final List<File> libraryFiles;
+
+    private SyntheticCorpus(Path root,
+                            List<File> operationFiles,
+                            List<File> libraryFiles) {
+        this.root = root;
+        this.operationFiles = operationFiles;
+        this.libraryFiles = libraryFiles;
+        this.files = new ArrayList<>(libraryFiles);
+        this.files.addAll(operationFiles);
+    }
+
+    static SyntheticCorpus generate(int operationFiles,
+                                    int libraryFiles) throws IOException {
+        return newCorpus().operationFiles(operationFiles).librariesPerLevel(libraryFiles).generate();
+    }
+
+    static Builder newCorpus() {
+        return new Builder();
+    }
+
+    String getRootPath() {
+        return root.toString();
+    }
+
+    List<File> getFiles() {
+        return files;
+    }
+
+    List<File> getOperationFiles() {
+        return operationFiles;
+    }
+
+    List<File> getLibraryFiles() {
+        return libraryFiles;
+    }
+
+    void delete() throws IOException {
+        FileUtils.deleteDirectory(root.toFile());
+    }
+
+    static class Builder {
+
+        private int operationFiles = 1000;
+        private int librariesPerLevel = 100;
+        private int fanOut = 1;
+        private int depth = 1;
+        private int fragmentSize = 4;
+        private int plainOperationFiles = 0;
+        private int schemaFiles = 0;
+        private boolean excludedSpreads;
+
+        private Builder() {
+        }
+
+        Builder operationFiles(int operationFiles) {
+            this.operationFiles = operationFiles;
+            return this;
+        }
+
+        Builder librariesPerLevel(int librariesPerLevel) {
+            this.librariesPerLevel = Math.max(1, librariesPerLevel);
+            return this;
+        }
+
+        /**
+         * Number of fragments each operation imports
+         */
+        Builder fanOut(int fanOut) {
+            this.fanOut = fanOut;
+            return this;
+        }
+
+        /**
+         * Number of library levels an imported fragment chain passes through
+         */
+        Builder depth(int depth) {
+            this.depth = Math.max(1, depth);
+            return this;
+        }
+
+        /**
+         * Number of fields selected by each library fragment
+         */
+        Builder fragmentSize(int fragmentSize) {
+            this.fragmentSize = fragmentSize;
+            return this;
+        }
+
+        /**
+         * Number of operations which import nothing, each with a local fragment
+         */
+        Builder plainOperationFiles(int plainOperationFiles) {
+            this.plainOperationFiles = plainOperationFiles;
+            return this;
+        }
+
+        /**
+         * Number of files of type definitions
+         */
+        Builder schemaFiles(int schemaFiles) {
+            this.schemaFiles = schemaFiles;
+            return this;
+        }
+
+        /**
+         * Whether libraries above level 0 also spread another library under a constant false {@code @include}
+         */
+        Builder excludedSpreads(boolean excludedSpreads) {
+            this.excludedSpreads = excludedSpreads;
+            return this;
+        }
+
+        SyntheticCorpus generate() throws IOException {
+            Path root = Files.createTempDirectory("graphql-corpus");
+            List<File> libraries = new ArrayList<>();
+            List<File> operations = new ArrayList<>();
+
+            for (int level = 0; level < depth; level++) {
+                Path libraryDirectory = Files.createDirectories(root.resolve("lib").resolve("level" + level));
+                for (int i = 0; i < librariesPerLevel; i++) {
+                    StringBuilder fragment = new StringBuilder()
+                            .append("fragment ").append(fragmentName(level, i)).append(" on Tweet @export {\n");
+                    for (int field = 0; field < fragmentSize; field++) {
+                        fragment.append("    field").append(field).append("\n");
+                    }
+                    if (level > 0) {
+                        fragment.append("    Parent {\n")
+                                .append("        ").append(importSpread(level - 1, i)).append("\n");
+                        if (excludedSpreads) {
+                            fragment.append("        ").append(importSpread(level - 1, (i + 1) % librariesPerLevel))
+                                    .append(" @include(if: false)\n");
+                        }
+                        fragment.append("    }\n");
+                    }
+                    fragment.append("}\n");
+                    libraries.add(write(libraryDirectory.resolve("Library" + i + ".graphql"), fragment.toString()));
+                }
+            }
+
+            Path operationDirectory = Files.createDirectories(root.resolve("ops"));
+            for (int i = 0; i < operationFiles; i++) {
+                StringBuilder operation = new StringBuilder()
+                        .append("query Q").append(i).append(" {\n")
+                        .append("    Tweet(id: ").append(i).append(") {\n");
+                for (int spread = 0; spread < fanOut; spread++) {
+                    operation.append("        ").append(importSpread(depth - 1, (i + spread) % librariesPerLevel)).append("\n");
+                }
+                operation.append("    }\n")
+                        .append("}\n");
+                operations.add(write(operationDirectory.resolve("Query" + i + ".graphql"), operation.toString()));
+            }
+
+            Path plainDirectory = Files.createDirectories(root.resolve("plain"));
+            for (int i = 0; i < plainOperationFiles; i++) {
+                StringBuilder operation = new StringBuilder()
+                        .append("query Plain").append(i).append(" {\n")
+                        .append("    Tweet(id: ").append(i).append(") {\n")
+                        .append("        ...plain").append(i).append("Fields\n")
+                        .append("    }\n")
+                        .append("}\n\n")
+                        .append("fragment plain").append(i).append("Fields on Tweet {\n");
+                for (int field = 0; field < fragmentSize; field++) {
+                    operation.append("    field").append(field).append("\n");
+                }
+                operation.append("}\n");
+                operations.add(write(plainDirectory.resolve("Plain" + i + ".graphql"), operation.toString()));
+            }
+
+            List<File> schema = new ArrayList<>();
+            Path schemaDirectory = Files.createDirectories(root.resolve("schema"));
+            for (int i = 0; i < schemaFiles; i++) {
+                StringBuilder types = new StringBuilder()
+                        .append("\"\"\"Generated type ").append(i).append("\"\"\"\n")
+                        .append("type Type").append(i).append(" {\n");
+                for (int field = 0; field < fragmentSize; field++) {
+                    types.append("    field").append(field).append(": String\n");
+                }
+                types.append("}\n\n")
+                        .append("scalar Scalar").append(i).append("\n\n")
+                        .append("extend type Query {\n")
+                        .append("    type").append(i).append(": Type").append(i).append("\n")
+                        .append("}\n");
+                schema.add(write(schemaDirectory.resolve("Type" + i + ".graphql"), types.toString()));
+            }
+            SyntheticCorpus corpus = new SyntheticCorpus(root, operations, libraries);
+            corpus.files.addAll(schema);
+            return corpus;
+        }
+
+        private static String fragmentName(int level,
+                                           int library) {
+            return "lib" + level + "_" + library + "Fields";
+        }
+
+        private static String importSpread(int level,
+                                           int library) {
+            return "..." + fragmentName(level, library) + " @import(from: \"lib.level" + level + ".Library" + library + "\")";
+        }
+
+        private static File write(Path path,
+                                  String content) throws IOException {
+            Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+            return path.toFile();
+        }
+    }
+}
@@ -0,0 +1,473 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.*;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary form of executable documents, much cheaper to decode than parsing the text again.
+ *
+ * Names and other strings go into a table at the start so each is decoded once, and the nodes follow as tags with
+ * varint references into it. Only the nodes which make up operations and fragments are supported and source locations,
+ * comments and ignored characters are dropped, which doesn't change the printed document.
+ */
+class DocumentCodec {
+
+    private static final byte OPERATION_DEFINITION = 1;
+    private static final byte FRAGMENT_DEFINITION = 2;
+    private static final byte FIELD = 3;
+    private static final byte FRAGMENT_SPREAD = 4;
+    private static final byte INLINE_FRAGMENT = 5;
+    private static final byte INT_VALUE = 6;
+    private static final byte FLOAT_VALUE = 7;
+    private static final byte STRING_VALUE = 8;
+    private static final byte BOOLEAN_VALUE = 9;
+    private static final byte NULL_VALUE = 10;
+    private static final byte ENUM_VALUE = 11;
+    private static final byte ARRAY_VALUE = 12;
+    private static final byte OBJECT_VALUE = 13;
+    private static final byte VARIABLE_REFERENCE = 14;
+    private static final byte TYPE_NAME = 15;
+    private static final byte LIST_TYPE = 16;
+    private static final byte NON_NULL_TYPE = 17;
+
+    private DocumentCodec() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if the document contains nodes which aren't supported, e.g. type definitions
+     */
+    static byte[] encode(Document document) throws IllegalArgumentException {
+        return new Encoder().encode(document);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the bytes aren't a document written by {@link #encode(Document)}
+     */
+    static Document decode(ByteBuffer buffer) throws IllegalArgumentException {
+        try {
+            return new Decoder(buffer).decodeDocument();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NumberFormatException | ClassCastException e) {
+            throw new IllegalArgumentException("Corrupt document", e);
+        }
+    }
+
+    private static class Encoder {
+
+        private final Map<String, Integer> stringIds = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+
+        private byte[] encode(Document document) {
+            writeVarInt(document.getDefinitions().size());
+            for (Definition<?> definition : document.getDefinitions()) {
+                writeDefinition(definition);
+            }
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream(body.size() + strings.size() * 16);
+            writeVarInt(output, strings.size());
+            for (String string : strings) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                writeVarInt(output, bytes.length);
+                output.write(bytes, 0, bytes.length);
+            }
+            byte[] bodyBytes = body.toByteArray();
+            output.write(bodyBytes, 0, bodyBytes.length);
+            return output.toByteArray();
+        }
+
+        private void writeDefinition(Definition<?> definition) {
+            if (definition instanceof OperationDefinition) {
+                OperationDefinition operationDefinition = (OperationDefinition) definition;
+                body.write(OPERATION_DEFINITION);
+                writeVarInt(operationDefinition.getOperation().ordinal());
+                writeOptionalString(operationDefinition.getName());
+                writeVarInt(operationDefinition.getVariableDefinitions().size());
+                for (VariableDefinition variableDefinition : operationDefinition.getVariableDefinitions()) {
+                    writeString(variableDefinition.getName());
+                    writeType(variableDefinition.getType());
+                    writeOptionalValue(variableDefinition.getDefaultValue());
+                    writeDirectives(variableDefinition.getDirectives());
+                }
+                writeDirectives(operationDefinition.getDirectives());
+                writeSelectionSet(operationDefinition.getSelectionSet());
+            } else if (definition instanceof FragmentDefinition) {
+                FragmentDefinition fragmentDefinition = (FragmentDefinition) definition;
+                body.write(FRAGMENT_DEFINITION);
+                writeString(fragmentDefinition.getName());
+                writeString(fragmentDefinition.getTypeCondition().getName());
+                writeDirectives(fragmentDefinition.getDirectives());
+                writeSelectionSet(fragmentDefinition.getSelectionSet());
+            } else {
+                throw new IllegalArgumentException("Unsupported definition " + definition.getClass().getSimpleName());
+            }
+        }
+
+        private void writeSelectionSet(SelectionSet selectionSet) {
+            if (selectionSet == null) {
+                writeVarInt(0);
+                return;
+            }
+            writeVarInt(selectionSet.getSelections().size() + 1);
+            for (Selection<?> selection : selectionSet.getSelections()) {
+                if (selection instanceof Field) {
+                    Field field = (Field) selection;
+                    body.write(FIELD);
+                    writeString(field.getName());
+                    writeOptionalString(field.getAlias());
+                    writeArguments(field.getArguments());
+                    writeDirectives(field.getDirectives());
+                    writeSelectionSet(field.getSelectionSet());
+                } else if (selection instanceof FragmentSpread) {
+                    FragmentSpread fragmentSpread = (FragmentSpread) selection;
+                    body.write(FRAGMENT_SPREAD);
+                    writeString(fragmentSpread.getName());
+                    writeDirectives(fragmentSpread.getDirectives());
+                } else if (selection instanceof InlineFragment) {
+                    InlineFragment inlineFragment = (InlineFragment) selection;
+                    body.write(INLINE_FRAGMENT);
+                    writeOptionalString(inlineFragment.getTypeCondition() == null ? null : inlineFragment.getTypeCondition().getName());
+                    writeDirectives(inlineFragment.getDirectives());
+                    writeSelectionSet(inlineFragment.getSelectionSet());
+                } else {
+                    throw new IllegalArgumentException("Unsupported selection " + selection.getClass().getSimpleName());
+                }
+            }
+        }
+
+        private void writeDirectives(List<Directive> directives) {
+            writeVarInt(directives.size());
+            for (Directive directive : directives) {
+                writeString(directive.getName());
+                writeArguments(directive.getArguments());
+            }
+        }
+
+        private void writeArguments(List<Argument> arguments) {
+            writeVarInt(arguments.size());
+            for (Argument argument : arguments) {
+                writeString(argument.getName());
+                writeValue(argument.getValue());
+            }
+        }
+
+        private void writeOptionalValue(Value<?> value) {
+            if (value == null) {
+                body.write(0);
+            } else {
+                writeValue(value);
+            }
+        }
+
+        private void writeValue(Value<?> value) {
+            if (value instanceof IntValue) {
+                body.write(INT_VALUE);
+                writeString(((IntValue) value).getValue().toString());
+            } else if (value instanceof FloatValue) {
+                body.write(FLOAT_VALUE);
+                writeString(((FloatValue) value).getValue().toString());
+            } else if (value instanceof StringValue) {
+                body.write(STRING_VALUE);
+                writeString(((StringValue) value).getValue());
+            } else if (value instanceof BooleanValue) {
+                body.write(BOOLEAN_VALUE);
+                body.write(((BooleanValue) value).isValue() ? 1 : 0);
+            } else if (value instanceof NullValue) {
+                body.write(NULL_VALUE);
+            } else if (value instanceof EnumValue) {
+                body.write(ENUM_VALUE);
+                writeString(((EnumValue) value).getName());
+            } else if (value instanceof ArrayValue) {
+                body.write(ARRAY_VALUE);
+                List<Value> values = ((ArrayValue) value).getValues();
+                writeVarInt(values.size());
+                for (Value<?> element : values) {
+                    writeValue(element);
+                }
+            } else if (value instanceof ObjectValue) {
+                body.write(OBJECT_VALUE);
+                List<ObjectField> objectFields = ((ObjectValue) value).getObjectFields();
+                writeVarInt(objectFields.size());
+                for (ObjectField objectField : objectFields) {
+                    writeString(objectField.getName());
+                    writeValue(objectField.getValue());
+                }
+            } else if (value instanceof VariableReference) {
+                body.write(VARIABLE_REFERENCE);
+                writeString(((VariableReference) value).getName());
+            } else {
+                throw new IllegalArgumentException("Unsupported value " + value.getClass().getSimpleName());
+            }
+        }
+
+        private void writeType(Type<?> type) {
+            if (type instanceof TypeName) {
+                body.write(TYPE_NAME);
+                writeString(((TypeName) type).getName());
+            } else if (type instanceof ListType) {
+                body.write(LIST_TYPE);
+                writeType(((ListType) type).getType());
+            } else if (type instanceof NonNullType) {
+                body.write(NON_NULL_TYPE);
+                writeType(((NonNullType) type).getType());
+            } else {
+                throw new IllegalArgumentException("Unsupported type " + type.getClass().getSimpleName());
+            }
+        }
+
+        private void writeOptionalString(String string) {
+            writeVarInt(string == null ? 0 : getStringId(string) + 1);
+        }
+
+        private void writeString(String string) {
+            writeVarInt(getStringId(string));
+        }
+
+        private int getStringId(String string) {
+            Integer id = stringIds.get(string);
+            if (id == null) {
+                id = strings.size();
+                stringIds.put(string, id);
+                strings.add(string);
+            }
+            return id;
+        }
+
+        private void writeVarInt(int value) {
+            writeVarInt(body, value);
+        }
+
+        private static void writeVarInt(ByteArrayOutputStream output,
+                                        int value) {
+            while ((value & ~0x7F) != 0) {
+                output.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            output.write(value);
+        }
+    }
+
+    private static class Decoder {
+
+        private static final OperationDefinition.Operation[] OPERATIONS = OperationDefinition.Operation.values();
+
+        private final ByteBuffer buffer;
+        private final String[] strings;
+
+        private Decoder(ByteBuffer buffer) {
+            this.buffer = buffer;
+            int stringCount = readLength();
+            strings = new String[stringCount];
+            for (int i = 0; i < stringCount; i++) {
+                int length = readLength();
+                if (buffer.hasArray()) {
+                    strings[i] = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+                    buffer.position(buffer.position() + length);
+                } else {
+                    byte[] bytes = new byte[length];
+                    buffer.get(bytes);
+                    strings[i] = new String(bytes, StandardCharsets.UTF_8);
+                }
+            }
+        }
+
+        private Document decodeDocument() {
+            int definitionCount = readLength();
+            List<Definition> definitions = new ArrayList<>(definitionCount);
+            for (int i = 0; i < definitionCount; i++) {
+                definitions.add(readDefinition());
+            }
+            if (buffer.hasRemaining()) {
+                throw new IllegalArgumentException("Trailing bytes after document");
+            }
+            return new Document(definitions);
+        }
+
+        private Definition<?> readDefinition() {
+            byte tag = buffer.get();
+            if (tag == OPERATION_DEFINITION) {
+                OperationDefinition.Operation operation = OPERATIONS[readVarInt()];
+                String name = readOptionalString();
+                int variableDefinitionCount = readLength();
+                List<VariableDefinition> variableDefinitions = new ArrayList<>(variableDefinitionCount);
+                for (int i = 0; i < variableDefinitionCount; i++) {
+                    variableDefinitions.add(VariableDefinition.newVariableDefinition()
+                            .name(readString())
+                            .type(readType())
+                            .defaultValue(readOptionalValue())
+                            .directives(readDirectives())
+                            .build());
+                }
+                return OperationDefinition.newOperationDefinition()
+                        .operation(operation)
+                        .name(name)
+                        .variableDefinitions(variableDefinitions)
+                        .directives(readDirectives())
+                        .selectionSet(readSelectionSet())
+                        .build();
+            }
+            if (tag == FRAGMENT_DEFINITION) {
+                return FragmentDefinition.newFragmentDefinition()
+                        .name(readString())
+                        .typeCondition(new TypeName(readString()))
+                        .directives(readDirectives())
+                        .selectionSet(readSelectionSet())
+                        .build();
+            }
+            throw new IllegalArgumentException("Unknown definition tag " + tag);
+        }
+
+        private SelectionSet readSelectionSet() {
+            int selectionCount = readLength() - 1;
+            if (selectionCount < 0) {
+                return null;
+            }
+            List<Selection> selections = new ArrayList<>(selectionCount);
+            for (int i = 0; i < selectionCount; i++) {
+                byte tag = buffer.get();
+                if (tag == FIELD) {
+                    selections.add(Field.newField()
+                            .name(readString())
+                            .alias(readOptionalString())
+                            .arguments(readArguments())
+                            .directives(readDirectives())
+                            .selectionSet(readSelectionSet())
+                            .build());
+                } else if (tag == FRAGMENT_SPREAD) {
+                    selections.add(FragmentSpread.newFragmentSpread()
+                            .name(readString())
+                            .directives(readDirectives())
+                            .build());
+                } else if (tag == INLINE_FRAGMENT) {
+                    String typeCondition = readOptionalString();
+                    selections.add(InlineFragment.newInlineFragment()
+                            .typeCondition(typeCondition == null ? null : new TypeName(typeCondition))
+                            .directives(readDirectives())
+                            .selectionSet(readSelectionSet())
+                            .build());
+                } else {
+                    throw new IllegalArgumentException("Unknown selection tag " + tag);
+                }
+            }
+            return new SelectionSet(selections);
+        }
+
+        private List<Directive> readDirectives() {
+            int directiveCount = readLength();
+            List<Directive> directives = new ArrayList<>(directiveCount);
+            for (int i = 0; i < directiveCount; i++) {
+                directives.add(new Directive(readString(), readArguments()));
+            }
+            return directives;
+        }
+
+        private List<Argument> readArguments() {
+            int argumentCount = readLength();
+            List<Argument> arguments = new ArrayList<>(argumentCount);
+            for (int i = 0; i < argumentCount; i++) {
+                arguments.add(new Argument(readString(), readValue(buffer.get())));
+            }
+            return arguments;
+        }
+
+        private Value<?> readOptionalValue() {
+            byte tag = buffer.get();
+            return tag == 0 ? null : readValue(tag);
+        }
+
+        private Value<?> readValue(byte tag) {
+            switch (tag) {
+                case INT_VALUE:
+                    return new IntValue(new BigInteger(readString()));
+                case FLOAT_VALUE:
+                    return new FloatValue(new BigDecimal(readString()));
+                case STRING_VALUE:
+                    return new StringValue(readString());
+                case BOOLEAN_VALUE:
+                    return new BooleanValue(buffer.get() != 0);
+                case NULL_VALUE:
+                    return NullValue.newNullValue().build();
+                case ENUM_VALUE:
+                    return new EnumValue(readString());
+                case ARRAY_VALUE: {
+                    int valueCount = readLength();
+                    List<Value> values = new ArrayList<>(valueCount);
+                    for (int i = 0; i < valueCount; i++) {
+                        values.add(readValue(buffer.get()));
+                    }
+                    return new ArrayValue(values);
+                }
+                case OBJECT_VALUE: {
+                    int objectFieldCount = readLength();
+                    List<ObjectField> objectFields = new ArrayList<>(objectFieldCount);
+                    for (int i = 0; i < objectFieldCount; i++) {
+                        objectFields.add(new ObjectField(readString(), readValue(buffer.get())));
+                    }
+                    return new ObjectValue(objectFields);
+                }
+                case VARIABLE_REFERENCE:
+                    return new VariableReference(readString());
+                default:
+                    throw new IllegalArgumentException("Unknown value tag " + tag);
+            }
+        }
+
+        private Type<?> readType() {
+            byte tag = buffer.get();
+            switch (tag) {
+                case TYPE_NAME:
+                    return new TypeName(readString());
+                case LIST_TYPE:
+                    return new ListType(readType());
+                case NON_NULL_TYPE:
+                    return new NonNullType(readType());
+                default:
+                    throw new IllegalArgumentException("Unknown type tag " + tag);
+            }
+        }
+
+        private String readOptionalString() {
+            int id = readVarInt();
+            return id == 0 ? null : strings[id - 1];
+        }
+
+        private String readString() {
+            return strings[readVarInt()];
+        }
+
+        /**
+         * Read a count of things which each take at least a byte, so a corrupt count fails before allocating for it.
+         */
+        private int readLength() {
+            int length = readVarInt();
+            if (length > buffer.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            return length;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                byte b = buffer.get();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    if (value < 0) {
+                        throw new BufferUnderflowException();
+                    }
+                    return value;
+                }
+            }
+            throw new BufferUnderflowException();
+        }
+    }
+}
@@ -1,155 +1,123 @@
 package com.zachary_moore.graphql;
 
 import graphql.language.*;
-import graphql.util.TraversalControl;
-import graphql.util.TraverserContext;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+/**
+ * Inlines imported fragments into documents.
+ *
+ * A generator is built once per run from every document in that run. Building it constructs the {@link FragmentGraph}
+ * of every fragment in the run, so resolving an imported fragment is a lookup of its precomputed closure. It should
+ * be shared by all documents being resolved and is safe for concurrent use. Imported fragments can be renamed after
+ * where they're imported from, see {@link FragmentNamespaces}.
+ */
 public class DocumentGenerator {
 
-    private static final String IMPORT_DIRECTIVE_NAME = "import";
-    private static final String IMPORT_DIRECTIVE_FROM_ARGUMENT = "from";
+    private final FragmentGraph fragmentGraph;
+    private final ResolutionListener listener;
+    // Null unless imports are namespaced
+    private final FragmentNamespaces namespaces;
+    // Which exported fragments have been looked up, only kept for the listener
+    private final AtomicIntegerArray lookedUp;
 
-    // Map of file import to Map of fragment name to all dependent fragments
-    // We hold this to lazily compute dependent fragments of imported fragments
-    private final Map<String, Map<String, Set<FragmentDefinition>>> resolvedDefinitions = new HashMap<>();
+    public DocumentGenerator(Map<String, Document> importToDocument) {
+        this(importToDocument, null);
+    }
 
-    // A map or imports to fragment name to fragment definition to be used for internal fragment lookups
-    private final Map<String, Map<String, FragmentDefinition>> importToAllFragmentDefinitions;
+    DocumentGenerator(Map<String, Document> importToDocument,
+                      ResolutionListener listener) {
+        this(importToDocument, listener, false);
+    }
 
-    public DocumentGenerator(Map<String, Document> importToDocument) {
-        this.importToAllFragmentDefinitions = importToDocument.entrySet()
-                .stream().collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        entry -> {
-                            List<FragmentDefinition> allDefinitions = entry.getValue().getDefinitionsOfType(FragmentDefinition.class);
-                            return allDefinitions.stream().collect(Collectors.toMap(
-                                    FragmentDefinition::getName,
-                                    Function.identity()
-                            ));
-                        }));
+    DocumentGenerator(Map<String, Document> importToDocument,
+                      ResolutionListener listener,
+                      boolean namespaceImports) {
+        this.fragmentGraph = new FragmentGraph(importToDocument);
+        this.listener = listener;
+        this.namespaces = namespaceImports ? new FragmentNamespaces(fragmentGraph) : null;
+        this.lookedUp = listener == null ? null : new AtomicIntegerArray(fragmentGraph.getNodeCount());
     }
 
+    /**
+     * @return the original definitions in order followed by the imported fragments, each once and after every
+     * fragment it spreads, so the same sources always give the same document whatever else is in the run
+     */
     public Document getFinalDocument(Document original,
                                      Map<String, Map<String, FragmentDefinition>> allFragmentExports) {
-        Set<Definition> allDefinitions = new HashSet<>(original.getDefinitions());
+        // Imported fragment ids in the order they're first imported, ordering their closures only needs these
+        int[] importedFragments = new int[8];
+        int importCount = 0;
         Map<String, FragmentDefinition> inDocumentDefinitions = original.getDefinitionsOfType(FragmentDefinition.class)
                 .stream().collect(Collectors.toMap(FragmentDefinition::getName, Function.identity()));
 
-        NodeVisitorStub fragmentSpreadVisitor = new NodeVisitorStub() {
-            @Override
-            public TraversalControl visitFragmentSpread(FragmentSpread fragmentSpread, TraverserContext<Node> context) {
-                Directive importDirective = getImportDirective(fragmentSpread);
-                if (importDirective == null) {
-                    if (!inDocumentDefinitions.containsKey(fragmentSpread.getName())) {
-                        throw new IllegalStateException("No import for fragment and not defined in file");
-                    }
-                    return TraversalControl.CONTINUE;
-                }
-
-                String importPath = ((StringValue) importDirective.getArgument(IMPORT_DIRECTIVE_FROM_ARGUMENT).getValue()).getValue();
-                if (importPath == null) {
-                    throw new IllegalStateException("Import directive does not have required argument from:");
-                }
-
-                if (!allFragmentExports.containsKey(importPath)) {
-                    throw new IllegalStateException("Trying to import fragment that is not exported");
+        for (FragmentSpread fragmentSpread : FragmentSpreads.collect(original)) {
+            String importPath = ImportParser.getImportPath(fragmentSpread);
+            if (importPath == null) {
+                if (!inDocumentDefinitions.containsKey(fragmentSpread.getName())) {
+                    throw new IllegalStateException("No import for fragment and not defined in file");
                 }
-
-                Map<String, FragmentDefinition> fragmentExports = allFragmentExports.get(importPath);
-                if (!fragmentExports.containsKey(fragmentSpread.getName())) {
-                    throw new IllegalStateException("Trying to import fragment that is not exported");
-                }
-
-                allDefinitions.addAll(
-                        resolveFragments(
-                                importPath,
-                                fragmentExports.get(fragmentSpread.getName()),
-                                allFragmentExports,
-                                new HashSet<>(Collections.singletonList(fragmentSpread.getName()))));
-                return TraversalControl.CONTINUE;
+                continue;
             }
-        };
 
-        AstTransformer astTransformer = new AstTransformer();
-        astTransformer.transform(original, fragmentSpreadVisitor);
+            if (!allFragmentExports.containsKey(importPath)) {
+                throw new IllegalStateException("Trying to import fragment that is not exported");
+            }
 
-        return Document.newDocument().definitions(new ArrayList<>(allDefinitions)).build();
-    }
+            Map<String, FragmentDefinition> fragmentExports = allFragmentExports.get(importPath);
+            if (!fragmentExports.containsKey(fragmentSpread.getName())) {
+                throw new IllegalStateException("Trying to import fragment that is not exported");
+            }
 
-    private List<FragmentDefinition> resolveFragments(String importPath,
-                                                      FragmentDefinition fragmentDefinition,
-                                                      Map<String, Map<String, FragmentDefinition>> allFragmentExports,
-                                                      Set<String> alreadyVisitedFragments) {
-        if (!resolvedDefinitions.containsKey(importPath)) {
-            resolvedDefinitions.put(importPath, new HashMap<>());
+            int node = fragmentGraph.getExportedNode(importPath, fragmentSpread.getName());
+            // Reports broken references and cycles in what the fragment depends on
+            int[] closure = fragmentGraph.getClosure(node);
+            if (listener != null) {
+                listener.onClosureLookup(importPath, fragmentSpread.getName(), closure.length, !lookedUp.compareAndSet(node, 0, 1));
+            }
+            if (importCount == importedFragments.length) {
+                importedFragments = Arrays.copyOf(importedFragments, importCount * 2);
+            }
+            importedFragments[importCount++] = node;
         }
 
-        if (resolvedDefinitions.get(importPath).containsKey(fragmentDefinition.getName())) {
-            return new ArrayList<>(resolvedDefinitions.get(importPath).get(fragmentDefinition.getName()));
+        if (importCount == 0) {
+            // Nothing imported so the document is already final
+            return original;
         }
 
-        Set<FragmentDefinition> dependentDefinitions = new HashSet<>(Collections.singletonList(fragmentDefinition));
-        NodeVisitorStub fragmentSpreadVisitor = new NodeVisitorStub() {
-            @Override
-            public TraversalControl visitFragmentSpread(FragmentSpread fragmentSpread, TraverserContext<Node> context) {
-                Directive importDirective = getImportDirective(fragmentSpread);
-                if (importDirective == null) {
-                    Map<String, FragmentDefinition> definitionsForFile = importToAllFragmentDefinitions.get(importPath);
-                    if (definitionsForFile == null) {
-                        throw new IllegalStateException("Trying to get fragment reference but not found in documents");
-                    }
-
-                    FragmentDefinition referencedDefinition = definitionsForFile.get(fragmentSpread.getName());
-                    if (referencedDefinition == null) {
-                        throw new IllegalStateException("Trying to get fragment reference but not found in documents");
-                    }
-
-
-                    dependentDefinitions.add(referencedDefinition);
-                    return TraversalControl.CONTINUE;
-                }
-
-                String importPath = ((StringValue) importDirective.getArgument(IMPORT_DIRECTIVE_FROM_ARGUMENT).getValue()).getValue();
-                if (importPath == null) {
-                    throw new IllegalStateException("Import directive does not have required argument from:");
-                }
-
-                if (!allFragmentExports.containsKey(importPath)) {
-                    throw new IllegalStateException("Trying to import fragment that is not exported");
-                }
-
-                Map<String, FragmentDefinition> fragmentExports = allFragmentExports.get(importPath);
-                if (!fragmentExports.containsKey(fragmentSpread.getName())) {
-                    throw new IllegalStateException("Trying to import fragment that is not exported");
-                }
-
-                if (alreadyVisitedFragments.contains(fragmentSpread.getName())) {
-                    throw new IllegalStateException("Cycle in fragment resolution");
+        int[] order = fragmentGraph.getTopologicalOrder(importedFragments, importCount);
+        List<Definition> allDefinitions = new ArrayList<>(original.getDefinitions().size() + order.length);
+        if (namespaces != null) {
+            for (Definition definition : original.getDefinitions()) {
+                allDefinitions.add(FragmentNamespaces.renameImports(definition));
+            }
+            Set<String> names = new HashSet<>(inDocumentDefinitions.keySet());
+            for (int fragment : order) {
+                FragmentDefinition fragmentDefinition = namespaces.getDefinition(fragment);
+                if (!names.add(fragmentDefinition.getName())) {
+                    throw new IllegalStateException("Namespaced name " + fragmentDefinition.getName() + " of fragment "
+                            + fragmentGraph.getDefinition(fragment).getName() + " from " + fragmentGraph.getImportPath(fragment)
+                            + " is already used in the document");
                 }
-                alreadyVisitedFragments.add(fragmentSpread.getName());
-                dependentDefinitions.addAll(resolveFragments(importPath,
-                        fragmentExports.get(fragmentSpread.getName()), allFragmentExports, alreadyVisitedFragments));
-                return TraversalControl.CONTINUE;
+                allDefinitions.add(fragmentDefinition);
             }
-        };
-        AstTransformer astTransformer = new AstTransformer();
-        astTransformer.transform(fragmentDefinition, fragmentSpreadVisitor);
-
-        resolvedDefinitions.get(importPath).put(fragmentDefinition.getName(), dependentDefinitions);
-        alreadyVisitedFragments.clear();
-        return new ArrayList<>(dependentDefinitions);
-    }
+            return Document.newDocument().definitions(allDefinitions).build();
+        }
 
-    private static Directive getImportDirective(FragmentSpread fragmentSpread) {
-        for (Directive directive : fragmentSpread.getDirectives()) {
-            if (directive.getName().equals(IMPORT_DIRECTIVE_NAME)) {
-                return directive;
+        allDefinitions.addAll(original.getDefinitions());
+        // Only differs from the graph's own deduplication when a document imports from its own file
+        Set<FragmentDefinition> originalDefinitions = Collections.newSetFromMap(new IdentityHashMap<>());
+        originalDefinitions.addAll(inDocumentDefinitions.values());
+        for (int fragment : order) {
+            FragmentDefinition fragmentDefinition = fragmentGraph.getDefinition(fragment);
+            if (!originalDefinitions.contains(fragmentDefinition)) {
+                allDefinitions.add(fragmentDefinition);
             }
         }
-        return null;
+        return Document.newDocument().definitions(allDefinitions).build();
     }
 }
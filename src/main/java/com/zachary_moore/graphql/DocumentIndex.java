@@ -0,0 +1,314 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.Document;
+import graphql.language.OperationDefinition;
+import graphql.schema.idl.SchemaPrinter;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Persistent record of every file seen by a run: its content hash, its exports and the fragments it imports.
+ *
+ * Stored as a compact binary file which is memory mapped on load.
+ */
+class DocumentIndex {
+
+    private static final int MAGIC = 0x47514958;
+    private static final int VERSION = 3;
+    private static final int HASH_LENGTH = 32;
+
+    // Root path the module ids of the entries were derived from
+    private final String rootPath;
+    // Options which change the final documents, see outputFlags
+    private final int outputFlags;
+    // Hash of the schema final documents are validated against, empty if they aren't, see schemaHash
+    private final byte[] schemaHash;
+    // Map of file path to entry
+    private final Map<String, Entry> entries;
+
+    DocumentIndex(String rootPath,
+                  int outputFlags,
+                  byte[] schemaHash,
+                  Map<String, Entry> entries) {
+        this.rootPath = rootPath;
+        this.outputFlags = outputFlags;
+        this.schemaHash = schemaHash;
+        this.entries = entries;
+    }
+
+    static DocumentIndex empty(String rootPath,
+                               int outputFlags,
+                               byte[] schemaHash) {
+        return new DocumentIndex(rootPath, outputFlags, schemaHash, new LinkedHashMap<>());
+    }
+
+    /**
+     * @return the options which change the final documents of unchanged files, packed into bits
+     */
+    static int outputFlags(GenerationOptions options) {
+        return (options.isTreeShake() ? 1 : 0) | (options.isTreeShake() && options.isInlineSingleUseFragments() ? 2 : 0)
+                | (options.isNamespaceImports() ? 4 : 0);
+    }
+
+    /**
+     * @return hash of the printed schema final documents are validated against, or an empty array if they aren't,
+     * so documents only validated against an older schema, or not at all, are generated and validated again
+     */
+    static byte[] schemaHash(GenerationOptions options) {
+        if (options.getSchema() == null) {
+            return new byte[0];
+        }
+        return hash(new SchemaPrinter().print(options.getSchema()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    Entry get(String path) {
+        return entries.get(path);
+    }
+
+    byte[] getSchemaHash() {
+        return schemaHash;
+    }
+
+    Collection<Entry> getEntries() {
+        return entries.values();
+    }
+
+    boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * @return the index stored at the given path, or an empty index if there is none, it can't be read
+     * or it was built for another root, other output flags or another schema
+     */
+    static DocumentIndex read(Path indexFile,
+                              String rootPath,
+                              int outputFlags,
+                              byte[] schemaHash) {
+        if (!Files.isRegularFile(indexFile)) {
+            return empty(rootPath, outputFlags, schemaHash);
+        }
+
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || !readString(buffer).equals(rootPath)
+                    || buffer.getInt() != outputFlags || !Arrays.equals(readBytes(buffer), schemaHash)) {
+                return empty(rootPath, outputFlags, schemaHash);
+            }
+
+            int entryCount = buffer.getInt();
+            Map<String, Entry> entries = new LinkedHashMap<>();
+            for (int i = 0; i < entryCount; i++) {
+                String path = readString(buffer);
+                String moduleId = readString(buffer);
+                byte[] contentHash = new byte[HASH_LENGTH];
+                buffer.get(contentHash);
+                boolean hasOperations = buffer.get() != 0;
+
+                int exportCount = buffer.getInt();
+                List<String> exports = new ArrayList<>();
+                for (int j = 0; j < exportCount; j++) {
+                    exports.add(readString(buffer));
+                }
+
+                int importCount = buffer.getInt();
+                Map<String, Set<String>> imports = new LinkedHashMap<>();
+                for (int j = 0; j < importCount; j++) {
+                    String importPath = readString(buffer);
+                    int fragmentCount = buffer.getInt();
+                    Set<String> fragments = new LinkedHashSet<>();
+                    for (int k = 0; k < fragmentCount; k++) {
+                        fragments.add(readString(buffer));
+                    }
+                    imports.put(importPath, fragments);
+                }
+
+                entries.put(path, new Entry(path, moduleId, contentHash, hasOperations, exports, imports));
+            }
+            return new DocumentIndex(rootPath, outputFlags, schemaHash, entries);
+        } catch (IOException | BufferUnderflowException e) {
+            // A missing or corrupt index only costs us a full rebuild
+            return empty(rootPath, outputFlags, schemaHash);
+        }
+    }
+
+    void write(Path indexFile) throws IOException {
+        Path parent = indexFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temporaryFile = Files.createTempFile(parent, indexFile.getFileName().toString(), ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            writeString(output, rootPath);
+            output.writeInt(outputFlags);
+            output.writeInt(schemaHash.length);
+            output.write(schemaHash);
+            output.writeInt(entries.size());
+            for (Entry entry : entries.values()) {
+                writeString(output, entry.path);
+                writeString(output, entry.moduleId);
+                output.write(entry.contentHash);
+                output.writeByte(entry.hasOperations ? 1 : 0);
+
+                output.writeInt(entry.exports.size());
+                for (String export : entry.exports) {
+                    writeString(output, export);
+                }
+
+                output.writeInt(entry.imports.size());
+                for (Map.Entry<String, Set<String>> importedFragments : entry.imports.entrySet()) {
+                    writeString(output, importedFragments.getKey());
+                    output.writeInt(importedFragments.getValue().size());
+                    for (String fragment : importedFragments.getValue()) {
+                        writeString(output, fragment);
+                    }
+                }
+            }
+        }
+        Files.move(temporaryFile, indexFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    static Entry createEntry(File file,
+                             String moduleId,
+                             byte[] contentHash,
+                             Document document) {
+        return new Entry(
+                file.getPath(),
+                moduleId,
+                contentHash,
+                !document.getDefinitionsOfType(OperationDefinition.class).isEmpty(),
+                new ArrayList<>(ExportParser.getExportedFragments(document).keySet()),
+                ImportParser.getImportedFragments(document));
+    }
+
+    /**
+     * @return paths of every file which imports from one of the modules, directly or through other files
+     */
+    static Set<String> getTransitiveImporters(Collection<Entry> entries,
+                                              Set<String> modules) {
+        Map<String, List<Entry>> moduleToImporters = new HashMap<>();
+        for (Entry entry : entries) {
+            for (String importPath : entry.imports.keySet()) {
+                moduleToImporters.computeIfAbsent(importPath, key -> new ArrayList<>()).add(entry);
+            }
+        }
+
+        Set<String> importers = new LinkedHashSet<>();
+        Deque<String> modulesToVisit = new ArrayDeque<>(modules);
+        while (!modulesToVisit.isEmpty()) {
+            for (Entry importer : moduleToImporters.getOrDefault(modulesToVisit.pop(), Collections.emptyList())) {
+                if (importers.add(importer.path)) {
+                    modulesToVisit.push(importer.moduleId);
+                }
+            }
+        }
+        return importers;
+    }
+
+    /**
+     * @return paths of the given files and of every file they import from, directly or through other files
+     */
+    static Set<String> getTransitiveImports(Map<String, Entry> entries,
+                                            Collection<String> paths) {
+        Map<String, String> moduleToPath = new HashMap<>();
+        for (Entry entry : entries.values()) {
+            moduleToPath.put(entry.moduleId, entry.path);
+        }
+
+        Set<String> requiredPaths = new LinkedHashSet<>(paths);
+        Deque<String> pathsToVisit = new ArrayDeque<>(paths);
+        while (!pathsToVisit.isEmpty()) {
+            Entry entry = entries.get(pathsToVisit.pop());
+            if (entry == null) {
+                continue;
+            }
+            for (String importPath : entry.imports.keySet()) {
+                String importedPath = moduleToPath.get(importPath);
+                if (importedPath != null && requiredPaths.add(importedPath)) {
+                    pathsToVisit.push(importedPath);
+                }
+            }
+        }
+        return requiredPaths;
+    }
+
+    static byte[] hash(byte[] content) {
+        return hash(ByteBuffer.wrap(content));
+    }
+
+    static byte[] hash(ByteBuffer content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(content.duplicate());
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream output,
+                                    String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    static class Entry {
+
+        final String path;
+        final String moduleId;
+        final byte[] contentHash;
+        final boolean hasOperations;
+        final List<String> exports;
+        // Map of import path to the fragment names imported from it
+        final Map<String, Set<String>> imports;
+
+        Entry(String path,
+              String moduleId,
+              byte[] contentHash,
+              boolean hasOperations,
+              List<String> exports,
+              Map<String, Set<String>> imports) {
+            this.path = path;
+            this.moduleId = moduleId;
+            this.contentHash = contentHash;
+            this.hasOperations = hasOperations;
+            this.exports = exports;
+            this.imports = imports;
+        }
+    }
+}
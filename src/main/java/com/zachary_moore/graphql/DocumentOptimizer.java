@@ -0,0 +1,264 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.*;
+
+import java.util.*;
+
+/**
+ * Shrinks final documents, set with {@link GenerationOptions.Builder#treeShake(boolean)}.
+ *
+ * Selections a constant {@code @include(if: false)} or {@code @skip(if: true)} excludes are removed, unless that would
+ * leave their selection set empty, and then fragment definitions no operation reaches are dropped. Imported fragments
+ * spread exactly once can also be inlined as inline fragments on their type condition. Documents without operations
+ * are left as they are. Definitions which don't change are kept as the same nodes, so imports shared between
+ * documents stay shared.
+ */
+class DocumentOptimizer {
+
+    private static final String EXPORT_DIRECTIVE_NAME = "export";
+
+    private final boolean inlineSingleUseFragments;
+
+    DocumentOptimizer(boolean inlineSingleUseFragments) {
+        this.inlineSingleUseFragments = inlineSingleUseFragments;
+    }
+
+    /**
+     * @return optimizer for the options, or null if documents aren't optimized
+     */
+    static DocumentOptimizer create(GenerationOptions options) {
+        return options.isTreeShake() ? new DocumentOptimizer(options.isInlineSingleUseFragments()) : null;
+    }
+
+    /**
+     * @param original      document as parsed, its own fragments are never inlined
+     * @param finalDocument document with its imports resolved
+     */
+    Document optimize(Document original,
+                      Document finalDocument) {
+        if (finalDocument.getDefinitionsOfType(OperationDefinition.class).isEmpty()) {
+            return finalDocument;
+        }
+
+        List<Definition> definitions = new ArrayList<>(finalDocument.getDefinitions().size());
+        Map<String, FragmentDefinition> fragments = new HashMap<>();
+        Set<String> duplicateNames = new HashSet<>();
+        for (Definition definition : finalDocument.getDefinitions()) {
+            Definition pruned = prune(definition);
+            definitions.add(pruned);
+            if (pruned instanceof FragmentDefinition) {
+                FragmentDefinition fragmentDefinition = (FragmentDefinition) pruned;
+                if (fragments.put(fragmentDefinition.getName(), fragmentDefinition) != null) {
+                    duplicateNames.add(fragmentDefinition.getName());
+                }
+            }
+        }
+
+        // Every spread in an operation or reachable fragment, counting reachable names as they're found
+        Map<String, Integer> spreadCounts = new HashMap<>();
+        Deque<FragmentDefinition> pending = new ArrayDeque<>();
+        for (Definition definition : definitions) {
+            if (definition instanceof OperationDefinition) {
+                countSpreads(FragmentSpreads.collect((OperationDefinition) definition), fragments, spreadCounts, pending);
+            }
+        }
+        while (!pending.isEmpty()) {
+            countSpreads(FragmentSpreads.collect(pending.pop()), fragments, spreadCounts, pending);
+        }
+
+        Map<String, FragmentDefinition> inlined = new HashMap<>();
+        if (inlineSingleUseFragments) {
+            Set<String> originalNames = getFragmentNames(original);
+            for (Definition definition : finalDocument.getDefinitions()) {
+                String name = definition instanceof FragmentDefinition ? ((FragmentDefinition) definition).getName() : null;
+                if (name != null && !originalNames.contains(name) && spreadCounts.getOrDefault(name, 0) == 1
+                        && !duplicateNames.contains(name) && isInlinable(fragments.get(name))) {
+                    inlined.put(name, fragments.get(name));
+                }
+            }
+        }
+
+        List<Definition> optimizedDefinitions = new ArrayList<>(definitions.size());
+        boolean changed = false;
+        for (int i = 0; i < definitions.size(); i++) {
+            Definition definition = definitions.get(i);
+            if (definition instanceof FragmentDefinition) {
+                String name = ((FragmentDefinition) definition).getName();
+                if (!spreadCounts.containsKey(name) || inlined.containsKey(name)) {
+                    changed = true;
+                    continue;
+                }
+            }
+            Definition optimized = inlined.isEmpty() ? definition : inline(definition, inlined);
+            changed |= optimized != finalDocument.getDefinitions().get(i);
+            optimizedDefinitions.add(optimized);
+        }
+        return changed ? finalDocument.transform(builder -> builder.definitions(optimizedDefinitions)) : finalDocument;
+    }
+
+    /**
+     * @return names of the document's own fragments, the other fragments of its final document are imported
+     */
+    static Set<String> getFragmentNames(Document original) {
+        Set<String> names = new HashSet<>();
+        for (FragmentDefinition fragmentDefinition : original.getDefinitionsOfType(FragmentDefinition.class)) {
+            names.add(fragmentDefinition.getName());
+        }
+        return names;
+    }
+
+    private static void countSpreads(List<FragmentSpread> fragmentSpreads,
+                                     Map<String, FragmentDefinition> fragments,
+                                     Map<String, Integer> spreadCounts,
+                                     Deque<FragmentDefinition> pending) {
+        for (FragmentSpread fragmentSpread : fragmentSpreads) {
+            String name = fragmentSpread.getName();
+            if (spreadCounts.merge(name, 1, Integer::sum) == 1 && fragments.containsKey(name)) {
+                pending.push(fragments.get(name));
+            }
+        }
+    }
+
+    /**
+     * Directives on the definition other than {@code @export} would be lost by inlining it
+     */
+    private static boolean isInlinable(FragmentDefinition fragmentDefinition) {
+        for (Directive directive : fragmentDefinition.getDirectives()) {
+            if (!directive.getName().equals(EXPORT_DIRECTIVE_NAME)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Definition prune(Definition definition) {
+        if (definition instanceof OperationDefinition) {
+            OperationDefinition operationDefinition = (OperationDefinition) definition;
+            SelectionSet selectionSet = prune(operationDefinition.getSelectionSet());
+            return selectionSet == operationDefinition.getSelectionSet()
+                    ? definition
+                    : operationDefinition.transform(builder -> builder.selectionSet(selectionSet));
+        }
+        if (definition instanceof FragmentDefinition) {
+            FragmentDefinition fragmentDefinition = (FragmentDefinition) definition;
+            SelectionSet selectionSet = prune(fragmentDefinition.getSelectionSet());
+            return selectionSet == fragmentDefinition.getSelectionSet()
+                    ? definition
+                    : fragmentDefinition.transform(builder -> builder.selectionSet(selectionSet));
+        }
+        return definition;
+    }
+
+    /**
+     * @return the selection set without excluded selections, or the same selection set if nothing changed or
+     * everything would be removed
+     */
+    private static SelectionSet prune(SelectionSet selectionSet) {
+        if (selectionSet == null) {
+            return null;
+        }
+        List<Selection> selections = new ArrayList<>(selectionSet.getSelections().size());
+        boolean changed = false;
+        for (Selection selection : selectionSet.getSelections()) {
+            if (isExcluded(((DirectivesContainer<?>) selection).getDirectives())) {
+                changed = true;
+                continue;
+            }
+            Selection pruned = selection;
+            if (selection instanceof Field) {
+                Field field = (Field) selection;
+                SelectionSet fieldSelectionSet = prune(field.getSelectionSet());
+                if (fieldSelectionSet != field.getSelectionSet()) {
+                    pruned = field.transform(builder -> builder.selectionSet(fieldSelectionSet));
+                }
+            } else if (selection instanceof InlineFragment) {
+                InlineFragment inlineFragment = (InlineFragment) selection;
+                SelectionSet fragmentSelectionSet = prune(inlineFragment.getSelectionSet());
+                if (fragmentSelectionSet != inlineFragment.getSelectionSet()) {
+                    pruned = inlineFragment.transform(builder -> builder.selectionSet(fragmentSelectionSet));
+                }
+            }
+            changed |= pruned != selection;
+            selections.add(pruned);
+        }
+        if (!changed || selections.isEmpty()) {
+            return selectionSet;
+        }
+        return selectionSet.transform(builder -> builder.selections(selections));
+    }
+
+    private static boolean isExcluded(List<Directive> directives) {
+        for (Directive directive : directives) {
+            Argument ifArgument = directive.getArgument("if");
+            if (ifArgument == null || !(ifArgument.getValue() instanceof BooleanValue)) {
+                continue;
+            }
+            boolean condition = ((BooleanValue) ifArgument.getValue()).isValue();
+            if ((directive.getName().equals("include") && !condition) || (directive.getName().equals("skip") && condition)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Definition inline(Definition definition,
+                                     Map<String, FragmentDefinition> inlined) {
+        if (definition instanceof OperationDefinition) {
+            OperationDefinition operationDefinition = (OperationDefinition) definition;
+            SelectionSet selectionSet = inline(operationDefinition.getSelectionSet(), inlined);
+            return selectionSet == operationDefinition.getSelectionSet()
+                    ? definition
+                    : operationDefinition.transform(builder -> builder.selectionSet(selectionSet));
+        }
+        if (definition instanceof FragmentDefinition) {
+            FragmentDefinition fragmentDefinition = (FragmentDefinition) definition;
+            SelectionSet selectionSet = inline(fragmentDefinition.getSelectionSet(), inlined);
+            return selectionSet == fragmentDefinition.getSelectionSet()
+                    ? definition
+                    : fragmentDefinition.transform(builder -> builder.selectionSet(selectionSet));
+        }
+        return definition;
+    }
+
+    /**
+     * @return the selection set with spreads of inlined fragments replaced, or the same selection set if there are none
+     */
+    private static SelectionSet inline(SelectionSet selectionSet,
+                                       Map<String, FragmentDefinition> inlined) {
+        if (selectionSet == null) {
+            return null;
+        }
+        List<Selection> selections = new ArrayList<>(selectionSet.getSelections().size());
+        boolean changed = false;
+        for (Selection selection : selectionSet.getSelections()) {
+            Selection inlinedSelection = selection;
+            if (selection instanceof FragmentSpread && inlined.containsKey(((FragmentSpread) selection).getName())) {
+                FragmentSpread fragmentSpread = (FragmentSpread) selection;
+                FragmentDefinition fragmentDefinition = inlined.get(fragmentSpread.getName());
+                List<Directive> directives = new ArrayList<>(fragmentSpread.getDirectives());
+                directives.removeIf(directive -> directive.getName().equals("import"));
+                // Inlined fragments can spread other inlined fragments, but never themselves
+                inlinedSelection = InlineFragment.newInlineFragment()
+                        .typeCondition(fragmentDefinition.getTypeCondition())
+                        .directives(directives)
+                        .selectionSet(inline(fragmentDefinition.getSelectionSet(), inlined))
+                        .build();
+            } else if (selection instanceof Field) {
+                Field field = (Field) selection;
+                SelectionSet fieldSelectionSet = inline(field.getSelectionSet(), inlined);
+                if (fieldSelectionSet != field.getSelectionSet()) {
+                    inlinedSelection = field.transform(builder -> builder.selectionSet(fieldSelectionSet));
+                }
+            } else if (selection instanceof InlineFragment) {
+                InlineFragment inlineFragment = (InlineFragment) selection;
+                SelectionSet fragmentSelectionSet = inline(inlineFragment.getSelectionSet(), inlined);
+                if (fragmentSelectionSet != inlineFragment.getSelectionSet()) {
+                    inlinedSelection = inlineFragment.transform(builder -> builder.selectionSet(fragmentSelectionSet));
+                }
+            }
+            changed |= inlinedSelection != selection;
+            selections.add(inlinedSelection);
+        }
+        return changed ? selectionSet.transform(builder -> builder.selections(selections)) : selectionSet;
+    }
+}
@@ -2,78 +2,365 @@ package com.zachary_moore.graphql;
 
 import graphql.language.Document;
 import graphql.language.FragmentDefinition;
+import graphql.language.FragmentSpread;
 import graphql.language.OperationDefinition;
+import graphql.parser.InvalidSyntaxException;
 import graphql.parser.Parser;
 import org.apache.commons.io.FileUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public class DocumentReader {
 
-    private static final String GRAPHQL_FILE_EXTENSION = ".graphql";
+    private static final int STREAMING_BATCH_SIZE = 256;
 
     public static Map<String, Document> generateDocuments(List<File> files,
                                                           String rootPath) throws IllegalStateException {
-        Map<File, Document> fileToDocument = files.stream()
-                .collect(Collectors.toMap(Function.identity(),
-                        file -> {
-                            try {
-                                return Parser.parse(FileUtils.readFileToString(file, StandardCharsets.UTF_8));
-                            } catch (IOException e) {
-                                throw new IllegalStateException("Couldn't create file map");
-                            }
-                        }));
+        return generateDocuments(files, rootPath, GenerationOptions.defaults());
+    }
+
+    public static Map<String, Document> generateDocuments(List<File> files,
+                                                          String rootPath,
+                                                          GenerationOptions options) throws IllegalStateException {
+        ResolutionListener listener = options.getListener();
+        ModuleIds moduleIds = new ModuleIds(rootPath, options.getModuleIdStrategy());
+        ParseCache parseCache = ParseCache.open(options, moduleIds);
+        Set<String> prunedImports = ExportAnalysis.readPruneList(options.getPruneList());
+        Map<String, Document> finalDocuments = withExecution(options, execution -> {
+            Map<String, File> prunedFiles = new HashMap<>();
+            Map<File, PreScan> preScans = new HashMap<>();
+            Map<File, ByteBuffer> contents = timePhase(listener, ResolutionListener.Phase.READ,
+                    () -> readFiles(files, moduleIds, prunedImports, prunedFiles, preScans, options, execution));
+            Map<File, Document> fileToDocument = timePhase(listener, ResolutionListener.Phase.PARSE, () -> {
+                Map<File, Document> parsed = execution.map(contents.keySet(),
+                        file -> parseCache.parse(file, contents.get(file), preScans.get(file)));
+                parseImportedPrunedFiles(parsed, prunedFiles, parseCache, execution);
+                return parsed;
+            });
+            contents.clear();
+            preScans.clear();
+            return resolveDocuments(fileToDocument, fileToDocument.keySet(), moduleIds, execution, options)
+                    .entrySet().stream().collect(Collectors.toMap(
+                            entry -> entry.getKey().getPath(),
+                            Map.Entry::getValue));
+        });
+        parseCache.save(false);
+        return finalDocuments;
+    }
+
+    public static void streamDocuments(List<File> files,
+                                       String rootPath,
+                                       BiConsumer<String, Document> consumer) throws IllegalStateException {
+        streamDocuments(files, rootPath, GenerationOptions.defaults(), consumer);
+    }
+
+    /**
+     * Streaming variant of {@link #generateDocuments} which hands each final document to the consumer as soon as it is
+     * resolved instead of building a map of every document.
+     *
+     * Only the fragment definitions of files which export fragments stay in memory for the whole run. Operation files
+     * are parsed once to index them and again when they are resolved, so their ASTs can be garbage collected as soon
+     * as the consumer is done with them. With {@link GenerationOptions#isPreScan()} operation files which export
+     * nothing are only parsed when they are resolved. Documents are handed over in the order of the given files, from the calling
+     * thread. If resolving a file fails the documents before it will already have been handed over.
+     */
+    public static void streamDocuments(List<File> files,
+                                       String rootPath,
+                                       GenerationOptions options,
+                                       BiConsumer<String, Document> consumer) throws IllegalStateException {
+        ModuleIds moduleIds = new ModuleIds(rootPath, options.getModuleIdStrategy());
+        ParseCache parseCache = ParseCache.open(options, moduleIds);
+        withExecution(options, execution -> {
+            Map<File, IndexedFile> indexedFiles = execution.map(files, file -> indexFile(parseCache, file, options));
+
+            Map<String, Document> importToFragmentDocument = new HashMap<>();
+            Map<String, Map<String, FragmentDefinition>> fileImportToExportedFragments = new HashMap<>();
+            List<File> operationFiles = new ArrayList<>();
+            for (Map.Entry<File, IndexedFile> indexedFile : indexedFiles.entrySet()) {
+                if (!indexedFile.getValue().exportedFragments.isEmpty()) {
+                    String fileImport = moduleIds.get(indexedFile.getKey());
+                    importToFragmentDocument.put(fileImport, indexedFile.getValue().fragmentDocument);
+                    fileImportToExportedFragments.put(fileImport, indexedFile.getValue().exportedFragments);
+                }
+                if (indexedFile.getValue().hasOperations) {
+                    operationFiles.add(indexedFile.getKey());
+                }
+            }
+            indexedFiles.clear();
+
+            DocumentGenerator documentGenerator = new DocumentGenerator(importToFragmentDocument, options.getListener(), options.isNamespaceImports());
+            DocumentOptimizer documentOptimizer = DocumentOptimizer.create(options);
+            DocumentValidator documentValidator = DocumentValidator.create(options);
+            // Operation files are never libraries
+            Function<File, Document> resolveFile = file -> resolveFile(documentGenerator, documentOptimizer, documentValidator,
+                    file, parseCache.parseFile(file, false), fileImportToExportedFragments);
+            if (!execution.isParallel()) {
+                for (File file : operationFiles) {
+                    acceptOperations(consumer, file, resolveFile.apply(file));
+                }
+                return null;
+            }
+
+            // Resolve in bounded batches so at most one batch of operation ASTs is alive at a time
+            for (int batchStart = 0; batchStart < operationFiles.size(); batchStart += STREAMING_BATCH_SIZE) {
+                List<File> batch = operationFiles.subList(batchStart, Math.min(operationFiles.size(), batchStart + STREAMING_BATCH_SIZE));
+                for (Map.Entry<File, Document> finalDocument : execution.map(batch, resolveFile).entrySet()) {
+                    acceptOperations(consumer, finalDocument.getKey(), finalDocument.getValue());
+                }
+            }
+            return null;
+        });
+        parseCache.save(false);
+    }
+
+    /**
+     * @param prunedFiles filled with the files left out because they're on the prune list, by file import
+     * @param preScans    filled with the pre-scans of the files to parse which were scanned
+     * @return contents of the files to parse, leaving out those the pre-scan found can't contribute to any final
+     * document and pruned files without operations
+     */
+    private static Map<File, ByteBuffer> readFiles(List<File> files,
+                                                   ModuleIds moduleIds,
+                                                   Set<String> prunedImports,
+                                                   Map<String, File> prunedFiles,
+                                                   Map<File, PreScan> preScans,
+                                                   GenerationOptions options,
+                                                   ParallelExecution execution) {
+        Map<File, ByteBuffer> contents = new LinkedHashMap<>();
+        for (Map.Entry<File, ByteBuffer> content : execution.map(files, PreScan::read).entrySet()) {
+            String fileImport = prunedImports.isEmpty() ? null : moduleIds.get(content.getKey());
+            boolean pruned = fileImport != null && prunedImports.contains(fileImport);
+            if (!options.isPreScan() && !pruned) {
+                contents.put(content.getKey(), content.getValue());
+                continue;
+            }
+
+            PreScan preScan = PreScan.scan(content.getValue());
+            if (options.isPreScan() && preScan.isInert()) {
+                continue;
+            }
+            if (pruned && !preScan.mayHaveOperations()) {
+                prunedFiles.put(fileImport, content.getKey());
+                continue;
+            }
+            preScans.put(content.getKey(), preScan);
+            contents.put(content.getKey(), content.getValue());
+        }
+        return contents;
+    }
+
+    /**
+     * Parse the pruned files which something in the run imports from after all, and whatever those import in turn.
+     */
+    private static void parseImportedPrunedFiles(Map<File, Document> fileToDocument,
+                                                 Map<String, File> prunedFiles,
+                                                 ParseCache parseCache,
+                                                 ParallelExecution execution) {
+        Collection<Document> documentsToCheck = fileToDocument.values();
+        while (!prunedFiles.isEmpty()) {
+            List<File> importedFiles = new ArrayList<>();
+            for (Document document : documentsToCheck) {
+                for (FragmentSpread fragmentSpread : FragmentSpreads.collect(document)) {
+                    String importPath = ImportParser.getImportPath(fragmentSpread);
+                    File importedFile = importPath == null ? null : prunedFiles.remove(importPath);
+                    if (importedFile != null) {
+                        importedFiles.add(importedFile);
+                    }
+                }
+            }
+            if (importedFiles.isEmpty()) {
+                return;
+            }
+
+            Map<File, Document> parsed = execution.map(importedFiles, parseCache::parseFile);
+            fileToDocument.putAll(parsed);
+            documentsToCheck = parsed.values();
+        }
+    }
+
+    private static IndexedFile indexFile(ParseCache parseCache,
+                                         File file,
+                                         GenerationOptions options) {
+        ByteBuffer content = PreScan.read(file);
+        PreScan preScan = null;
+        if (options.isPreScan()) {
+            preScan = PreScan.scan(content);
+            if (!preScan.hasExports()) {
+                // Nothing to index, we only need to know whether to resolve it later
+                return new IndexedFile(null, Collections.emptyMap(), preScan.mayHaveOperations());
+            }
+        }
+
+        Document document = parseCache.parse(file, content, preScan);
+        Map<String, FragmentDefinition> exportedFragments = getExportedFragments(document, options);
+        // Only keep the fragments of exporting files, they are all we need to resolve imports from them
+        Document fragmentDocument = exportedFragments.isEmpty()
+                ? null
+                : Document.newDocument().definitions(new ArrayList<>(document.getDefinitionsOfType(FragmentDefinition.class))).build();
+        return new IndexedFile(fragmentDocument,
+                exportedFragments,
+                !document.getDefinitionsOfType(OperationDefinition.class).isEmpty());
+    }
 
+    private static void acceptOperations(BiConsumer<String, Document> consumer,
+                                         File file,
+                                         Document finalDocument) {
+        // The pre-scan can only rule operations out, files it wasn't sure of may turn out to have none
+        if (!finalDocument.getDefinitionsOfType(OperationDefinition.class).isEmpty()) {
+            consumer.accept(file.getPath(), finalDocument);
+        }
+    }
+
+    private static Map<String, FragmentDefinition> getExportedFragments(Document document,
+                                                                      GenerationOptions options) {
+        return options.getLibraryCache() == null
+                ? ExportParser.getExportedFragments(document)
+                : options.getLibraryCache().getExportedFragments(document);
+    }
+
+    static <T> T timePhase(ResolutionListener listener,
+                           ResolutionListener.Phase phase,
+                           Supplier<T> work) {
+        if (listener == null) {
+            return work.get();
+        }
+        long start = System.nanoTime();
+        T result = work.get();
+        listener.onPhase(phase, System.nanoTime() - start);
+        return result;
+    }
+
+    static <T> T withExecution(GenerationOptions options,
+                               Function<ParallelExecution, T> work) {
+        if (options.getExecutor() != null) {
+            return work.apply(new ParallelExecution(options.getExecutor()));
+        }
+        if (options.getParallelism() > 1) {
+            ForkJoinPool pool = new ForkJoinPool(options.getParallelism());
+            try {
+                return work.apply(new ParallelExecution(pool));
+            } finally {
+                pool.shutdown();
+            }
+        }
+        return work.apply(ParallelExecution.serial());
+    }
+
+    /**
+     * Resolve the target files against every parsed document.
+     *
+     * @return final documents of the targets which contain an operation
+     */
+    static Map<File, Document> resolveDocuments(Map<File, Document> fileToDocument,
+                                                Collection<File> targets,
+                                                ModuleIds moduleIds,
+                                                ParallelExecution execution,
+                                                GenerationOptions options) {
+        ResolutionListener listener = options.getListener();
         Map<String, Document> importToDocument = fileToDocument.entrySet().stream()
                 .collect(Collectors.toMap(
-                        entry -> getFileImportFromFile(entry.getKey(), rootPath),
+                        entry -> moduleIds.get(entry.getKey()),
                         Map.Entry::getValue));
 
-        Map<String, Map<String, FragmentDefinition>> fileImportToExportedFragments = importToDocument.entrySet().stream()
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        entry -> ExportParser.getExportedFragments(entry.getValue())))
-                .entrySet().stream().filter(entry -> entry.getValue().size() > 0)
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        Map<String, Map<String, FragmentDefinition>> fileImportToExportedFragments = timePhase(listener, ResolutionListener.Phase.EXPORT_EXTRACTION,
+                () -> execution.map(
+                        importToDocument.keySet(),
+                        fileImport -> getExportedFragments(importToDocument.get(fileImport), options))
+                        .entrySet().stream().filter(entry -> entry.getValue().size() > 0)
+                        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
 
-        Map<File, Document> finalDocuments = fileToDocument.entrySet().stream()
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        entry -> new DocumentGenerator(importToDocument).getFinalDocument(entry.getValue(), fileImportToExportedFragments)))
-                .entrySet().stream().filter(entry -> entry.getValue().getDefinitionsOfType(OperationDefinition.class).size() != 0)
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-
-        return finalDocuments.entrySet().stream().collect(Collectors.toMap(
-                entry -> entry.getKey().getPath(),
-                Map.Entry::getValue));
-    }
-
-    private static String getFileImportFromFile(File file,
-                                                String rootPath) {
-        List<String> filePathSplitFromRoot = Arrays.stream(
-                file.getPath()
-                        .split(rootPath)[1]
-                        .split("/")
-        ).filter(string -> !string.isEmpty()).collect(Collectors.toList());
-
-        if (filePathSplitFromRoot.size() > 0) {
-            StringBuilder finalImportBuilder = new StringBuilder();
-            for (int i = 0; i < filePathSplitFromRoot.size(); i++) {
-                finalImportBuilder.append(filePathSplitFromRoot.get(i));
-                if (i != filePathSplitFromRoot.size() - 1) {
-                    finalImportBuilder.append(".");
-                }
+        Map<File, Document> resolvedDocuments = timePhase(listener, ResolutionListener.Phase.RESOLVE, () -> {
+            // Only files which export can be imported from, so only their fragments need to be in the graph
+            importToDocument.keySet().retainAll(fileImportToExportedFragments.keySet());
+            DocumentGenerator documentGenerator = new DocumentGenerator(importToDocument, listener, options.isNamespaceImports());
+            DocumentOptimizer documentOptimizer = DocumentOptimizer.create(options);
+            DocumentValidator documentValidator = DocumentValidator.create(options);
+            return execution.map(
+                    targets,
+                    file -> resolveFile(documentGenerator, documentOptimizer, documentValidator, file, fileToDocument.get(file), fileImportToExportedFragments));
+        });
+
+        return timePhase(listener, ResolutionListener.Phase.FILTER,
+                () -> resolvedDocuments.entrySet().stream()
+                        .filter(entry -> entry.getValue().getDefinitionsOfType(OperationDefinition.class).size() != 0)
+                        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
+    }
+
+    /**
+     * @param documentOptimizer applied to the final document, or null if it's returned as is
+     * @param documentValidator validates the final document if it has operations, or null if it isn't validated
+     */
+    private static Document resolveFile(DocumentGenerator documentGenerator,
+                                        DocumentOptimizer documentOptimizer,
+                                        DocumentValidator documentValidator,
+                                        File file,
+                                        Document document,
+                                        Map<String, Map<String, FragmentDefinition>> fileImportToExportedFragments) {
+        Document finalDocument;
+        try {
+            finalDocument = documentGenerator.getFinalDocument(document, fileImportToExportedFragments);
+        } catch (IllegalStateException e) {
+            throw new IllegalStateException("Could not resolve imports for " + file.getPath() + ": " + e.getMessage(), e);
+        }
+        if (documentOptimizer != null) {
+            finalDocument = documentOptimizer.optimize(document, finalDocument);
+        }
+        if (documentValidator != null && !finalDocument.getDefinitionsOfType(OperationDefinition.class).isEmpty()) {
+            List<String> errors = documentValidator.validate(document, finalDocument);
+            if (!errors.isEmpty()) {
+                throw new IllegalStateException(file.getPath() + " is not valid against the schema: " + String.join("; ", errors));
             }
-            return finalImportBuilder.toString().split(GRAPHQL_FILE_EXTENSION)[0];
         }
+        return finalDocument;
+    }
 
-        throw new IllegalStateException("Could not generate import from file");
+    static Document parseFile(File file) {
+        String content;
+        try {
+            content = FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't read " + file.getPath(), e);
+        }
+        return parse(file, content);
+    }
+
+    static Document parse(File file,
+                          String content) {
+        try {
+            return Parser.parse(content);
+        } catch (InvalidSyntaxException e) {
+            throw new IllegalStateException("Couldn't parse " + file.getPath() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static class IndexedFile {
+
+        private final Document fragmentDocument;
+        private final Map<String, FragmentDefinition> exportedFragments;
+        private final boolean hasOperations;
+
+        private IndexedFile(Document fragmentDocument,
+                            Map<String, FragmentDefinition> exportedFragments,
+                            boolean hasOperations) {
+            this.fragmentDocument = fragmentDocument;
+            this.exportedFragments = exportedFragments;
+            this.hasOperations = hasOperations;
+        }
     }
 }
@@ -0,0 +1,165 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.*;
+import graphql.schema.GraphQLSchema;
+import graphql.util.TraversalControl;
+import graphql.util.TraverserContext;
+import graphql.validation.ValidationError;
+import graphql.validation.ValidationErrorType;
+import graphql.validation.Validator;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Validates final documents against a schema, set with {@link GenerationOptions.Builder#schema(GraphQLSchema)}.
+ *
+ * Each imported fragment is validated once per run, on its own with the fragments it spreads replaced by stubs which
+ * only keep their type condition. A document is then validated as its operations and own fragments with its imported
+ * fragments stubbed the same way, so spreads of imports are still checked against where they're spread. Variables
+ * are only defined by operations, so imported fragments which use variables, directly or through what they spread,
+ * are validated with the operation in full. Fields selected by an import aren't checked for conflicts with fields
+ * of the operation selecting it.
+ *
+ * Created once per run and safe for concurrent use during it.
+ */
+class DocumentValidator {
+
+    private static final Field STUB_SELECTION = Field.newField("__typename").build();
+
+    private final GraphQLSchema schema;
+    // Node equality is identity, so each imported fragment of the run is validated once
+    private final Map<FragmentDefinition, ValidatedFragment> validatedFragments = new ConcurrentHashMap<>();
+
+    DocumentValidator(GraphQLSchema schema) {
+        this.schema = schema;
+    }
+
+    /**
+     * @return validator for the options, or null if documents aren't validated
+     */
+    static DocumentValidator create(GenerationOptions options) {
+        return options.getSchema() == null ? null : new DocumentValidator(options.getSchema());
+    }
+
+    /**
+     * @param original      document as parsed, its own fragments are validated with its operations
+     * @param finalDocument document with its imports resolved
+     * @return messages of the errors in the document, empty if it's valid
+     */
+    List<String> validate(Document original,
+                          Document finalDocument) {
+        Set<String> originalNames = DocumentOptimizer.getFragmentNames(original);
+        Map<String, FragmentDefinition> fragments = new HashMap<>();
+        for (FragmentDefinition fragmentDefinition : finalDocument.getDefinitionsOfType(FragmentDefinition.class)) {
+            fragments.putIfAbsent(fragmentDefinition.getName(), fragmentDefinition);
+        }
+
+        Set<String> messages = new LinkedHashSet<>();
+        List<Definition> operationDefinitions = new ArrayList<>();
+        Set<String> spreadNames = new LinkedHashSet<>();
+        for (Definition definition : finalDocument.getDefinitions()) {
+            if (definition instanceof FragmentDefinition && !originalNames.contains(((FragmentDefinition) definition).getName())) {
+                ValidatedFragment validatedFragment = getValidatedFragment((FragmentDefinition) definition, fragments);
+                messages.addAll(validatedFragment.messages);
+                if (!validatedFragment.usesVariables) {
+                    continue;
+                }
+            }
+            operationDefinitions.add(definition);
+            for (FragmentSpread fragmentSpread : collectSpreads(definition)) {
+                spreadNames.add(fragmentSpread.getName());
+            }
+        }
+
+        // Stub whatever is spread but left out, the rest of the document only needs to know its type condition
+        Set<String> includedNames = new HashSet<>();
+        for (Definition definition : operationDefinitions) {
+            if (definition instanceof FragmentDefinition) {
+                includedNames.add(((FragmentDefinition) definition).getName());
+            }
+        }
+        for (String spreadName : spreadNames) {
+            if (!includedNames.contains(spreadName) && fragments.containsKey(spreadName)) {
+                operationDefinitions.add(stub(fragments.get(spreadName)));
+            }
+        }
+        for (ValidationError validationError : new Validator().validateDocument(schema, Document.newDocument().definitions(operationDefinitions).build())) {
+            messages.add(validationError.getMessage());
+        }
+        return new ArrayList<>(messages);
+    }
+
+    private ValidatedFragment getValidatedFragment(FragmentDefinition fragmentDefinition,
+                                                   Map<String, FragmentDefinition> fragments) {
+        ValidatedFragment validatedFragment = validatedFragments.get(fragmentDefinition);
+        if (validatedFragment != null) {
+            return validatedFragment;
+        }
+
+        List<Definition> definitions = new ArrayList<>();
+        definitions.add(fragmentDefinition);
+        boolean usesVariables = usesVariables(fragmentDefinition);
+        Set<String> stubbedNames = new HashSet<>();
+        for (FragmentSpread fragmentSpread : FragmentSpreads.collect(fragmentDefinition)) {
+            FragmentDefinition spreadDefinition = fragments.get(fragmentSpread.getName());
+            if (spreadDefinition != null && stubbedNames.add(fragmentSpread.getName())) {
+                definitions.add(stub(spreadDefinition));
+                usesVariables |= getValidatedFragment(spreadDefinition, fragments).usesVariables;
+            }
+        }
+
+        List<String> messages = new ArrayList<>();
+        for (ValidationError validationError : new Validator().validateDocument(schema, Document.newDocument().definitions(definitions).build())) {
+            // Nothing spreads the fragment in a document of its own
+            if (validationError.getValidationErrorType() != ValidationErrorType.UnusedFragment) {
+                messages.add(validationError.getMessage());
+            }
+        }
+        validatedFragment = new ValidatedFragment(Collections.unmodifiableList(messages), usesVariables);
+        ValidatedFragment existing = validatedFragments.putIfAbsent(fragmentDefinition, validatedFragment);
+        return existing == null ? validatedFragment : existing;
+    }
+
+    private static List<FragmentSpread> collectSpreads(Definition definition) {
+        if (definition instanceof OperationDefinition) {
+            return FragmentSpreads.collect((OperationDefinition) definition);
+        }
+        if (definition instanceof FragmentDefinition) {
+            return FragmentSpreads.collect((FragmentDefinition) definition);
+        }
+        return Collections.emptyList();
+    }
+
+    private static FragmentDefinition stub(FragmentDefinition fragmentDefinition) {
+        return FragmentDefinition.newFragmentDefinition()
+                .name(fragmentDefinition.getName())
+                .typeCondition(fragmentDefinition.getTypeCondition())
+                .selectionSet(SelectionSet.newSelectionSet().selection(STUB_SELECTION).build())
+                .build();
+    }
+
+    private static boolean usesVariables(FragmentDefinition fragmentDefinition) {
+        boolean[] usesVariables = new boolean[1];
+        new NodeTraverser().depthFirst(new NodeVisitorStub() {
+            @Override
+            public TraversalControl visitVariableReference(VariableReference node,
+                                                           TraverserContext<Node> context) {
+                usesVariables[0] = true;
+                return TraversalControl.QUIT;
+            }
+        }, fragmentDefinition);
+        return usesVariables[0];
+    }
+
+    private static class ValidatedFragment {
+        final List<String> messages;
+        final boolean usesVariables;
+
+        ValidatedFragment(List<String> messages,
+                          boolean usesVariables) {
+            this.messages = messages;
+            this.usesVariables = usesVariables;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.AstPrinter;
+import graphql.language.Document;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Prints final documents straight into an output directory which mirrors the query root.
+ *
+ * Files whose printed content is already on disk are left untouched so their timestamps stay stable for
+ * downstream incremental tasks. Safe for concurrent use, and usable directly as the consumer of
+ * {@link DocumentReader#streamDocuments}.
+ */
+public class DocumentWriter {
+
+    private final Path rootPath;
+    private final Path outputDirectory;
+    private final Set<Path> createdDirectories = ConcurrentHashMap.newKeySet();
+
+    public DocumentWriter(String rootPath,
+                          Path outputDirectory) {
+        this.rootPath = Paths.get(rootPath).toAbsolutePath().normalize();
+        this.outputDirectory = outputDirectory.toAbsolutePath().normalize();
+    }
+
+    /**
+     * @return number of files actually written, the rest were unchanged
+     */
+    public static int writeDocuments(Map<String, Document> documents,
+                                     String rootPath,
+                                     Path outputDirectory) throws IllegalStateException {
+        return new DocumentWriter(rootPath, outputDirectory).writeAll(documents);
+    }
+
+    /**
+     * @return number of files actually written, the rest were unchanged
+     */
+    public int writeAll(Map<String, Document> documents) throws IllegalStateException {
+        int written = 0;
+        for (Map.Entry<String, Document> document : documents.entrySet()) {
+            if (write(document.getKey(), document.getValue())) {
+                written++;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * @param path path of the source file the document was generated from
+     * @return true if the file was written, false if it already had this content
+     */
+    public boolean write(String path,
+                         Document document) throws IllegalStateException {
+        Path target = getTarget(path);
+        byte[] content = AstPrinter.printAst(document).getBytes(StandardCharsets.UTF_8);
+        try {
+            if (hasContent(target, content)) {
+                return false;
+            }
+
+            Path parent = target.getParent();
+            if (createdDirectories.add(parent)) {
+                Files.createDirectories(parent);
+            }
+            try (FileChannel channel = FileChannel.open(target,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(content);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't write " + target, e);
+        }
+    }
+
+    /**
+     * @param path path of a source file whose document no longer exists, e.g. from
+     *             {@link IncrementalDocumentReader.Result#getRemovedDocuments()}
+     * @return true if there was a file to delete
+     */
+    public boolean delete(String path) throws IllegalStateException {
+        Path target = getTarget(path);
+        try {
+            return Files.deleteIfExists(target);
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't delete " + target, e);
+        }
+    }
+
+    Path getTarget(String path) {
+        Path source = Paths.get(path).toAbsolutePath().normalize();
+        if (!source.startsWith(rootPath)) {
+            throw new IllegalStateException(path + " is not under " + rootPath);
+        }
+        return outputDirectory.resolve(rootPath.relativize(source).toString());
+    }
+
+    private static boolean hasContent(Path target,
+                                      byte[] content) throws IOException {
+        if (!Files.isRegularFile(target) || Files.size(target) != content.length) {
+            return false;
+        }
+
+        // Same size so compare the bytes themselves, cheaper than hashing both sides and exact
+        ByteBuffer existing = ByteBuffer.allocate(content.length);
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.READ)) {
+            while (existing.hasRemaining() && channel.read(existing) >= 0) {
+                // keep reading until full or end of file
+            }
+        }
+        existing.flip();
+        return existing.equals(ByteBuffer.wrap(content));
+    }
+}
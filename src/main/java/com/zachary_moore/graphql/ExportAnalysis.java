@@ -0,0 +1,181 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.Document;
+import graphql.language.FragmentSpread;
+import graphql.language.OperationDefinition;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Which exported fragments are still used, over every document of a run.
+ *
+ * An export is used when an operation reaches it, directly or through the fragments it spreads and imports. Exports
+ * nothing imports are unused, and so are exports only imported by unused fragments. Fan-in is the number of files
+ * with an {@code @import} of the export, used or not.
+ *
+ * Files without operations whose fragments are all unused are dead. Their import paths can be written to a prune list
+ * for {@link GenerationOptions.Builder#prune} so later runs don't parse them.
+ */
+public class ExportAnalysis {
+
+    private final Map<String, Map<String, Integer>> fanIn;
+    private final Map<String, Set<String>> unusedExports;
+    private final Set<String> deadFiles;
+
+    private ExportAnalysis(Map<String, Map<String, Integer>> fanIn,
+                           Map<String, Set<String>> unusedExports,
+                           Set<String> deadFiles) {
+        this.fanIn = fanIn;
+        this.unusedExports = unusedExports;
+        this.deadFiles = deadFiles;
+    }
+
+    public static ExportAnalysis analyze(List<File> files,
+                                         String rootPath) throws IllegalStateException {
+        return analyze(files, rootPath, GenerationOptions.defaults());
+    }
+
+    public static ExportAnalysis analyze(List<File> files,
+                                         String rootPath,
+                                         GenerationOptions options) throws IllegalStateException {
+        ModuleIds moduleIds = new ModuleIds(rootPath, options.getModuleIdStrategy());
+        ParseCache parseCache = ParseCache.open(options, moduleIds);
+        Map<File, Document> fileToDocument = DocumentReader.withExecution(options,
+                execution -> execution.map(files, parseCache::parseFile));
+        parseCache.save(false);
+
+        Map<String, Document> importToDocument = new LinkedHashMap<>();
+        for (Map.Entry<File, Document> entry : fileToDocument.entrySet()) {
+            importToDocument.put(moduleIds.get(entry.getKey()), entry.getValue());
+        }
+        return analyze(importToDocument);
+    }
+
+    /**
+     * @param importToDocument every document of the run by file import
+     */
+    public static ExportAnalysis analyze(Map<String, Document> importToDocument) throws IllegalStateException {
+        FragmentGraph fragmentGraph = new FragmentGraph(importToDocument);
+        int[] fanInCounts = new int[fragmentGraph.getNodeCount()];
+        int[] roots = new int[16];
+        int rootCount = 0;
+        for (Map.Entry<String, Document> entry : importToDocument.entrySet()) {
+            Document document = entry.getValue();
+            // Each importing file counts once however many times it spreads the export
+            Set<Integer> imported = new HashSet<>();
+            for (FragmentSpread fragmentSpread : FragmentSpreads.collect(document)) {
+                String importPath = ImportParser.getImportPath(fragmentSpread);
+                int node = importPath == null ? FragmentGraph.MISSING : fragmentGraph.findNode(importPath, fragmentSpread.getName());
+                if (node != FragmentGraph.MISSING && fragmentGraph.isExported(node) && imported.add(node)) {
+                    fanInCounts[node]++;
+                }
+            }
+
+            for (OperationDefinition operationDefinition : document.getDefinitionsOfType(OperationDefinition.class)) {
+                for (FragmentSpread fragmentSpread : FragmentSpreads.collect(operationDefinition)) {
+                    String importPath = ImportParser.getImportPath(fragmentSpread);
+                    int node = fragmentGraph.findNode(importPath == null ? entry.getKey() : importPath, fragmentSpread.getName());
+                    if (node == FragmentGraph.MISSING) {
+                        continue;
+                    }
+                    if (rootCount == roots.length) {
+                        roots = Arrays.copyOf(roots, rootCount * 2);
+                    }
+                    roots[rootCount++] = node;
+                }
+            }
+        }
+
+        BitSet used = new BitSet(fragmentGraph.getNodeCount());
+        for (int node : fragmentGraph.getTopologicalOrder(roots, rootCount)) {
+            used.set(node);
+        }
+
+        Map<String, Map<String, Integer>> fanIn = new TreeMap<>();
+        Map<String, Set<String>> unusedExports = new TreeMap<>();
+        // Files with fragments which are all unused so far, by file import
+        Set<String> deadFiles = new TreeSet<>();
+        Set<String> liveFiles = new HashSet<>();
+        for (int node = 0; node < fragmentGraph.getNodeCount(); node++) {
+            String importPath = fragmentGraph.getImportPath(node);
+            String name = fragmentGraph.getDefinition(node).getName();
+            if (fragmentGraph.isExported(node)) {
+                fanIn.computeIfAbsent(importPath, key -> new TreeMap<>()).put(name, fanInCounts[node]);
+                if (!used.get(node)) {
+                    unusedExports.computeIfAbsent(importPath, key -> new TreeSet<>()).add(name);
+                }
+            }
+            if (used.get(node)) {
+                liveFiles.add(importPath);
+            } else {
+                deadFiles.add(importPath);
+            }
+        }
+        deadFiles.removeAll(liveFiles);
+        deadFiles.removeIf(importPath -> !importToDocument.get(importPath).getDefinitionsOfType(OperationDefinition.class).isEmpty());
+
+        return new ExportAnalysis(Collections.unmodifiableMap(fanIn),
+                Collections.unmodifiableMap(unusedExports),
+                Collections.unmodifiableSet(deadFiles));
+    }
+
+    /**
+     * @return number of files importing each exported fragment, by file import and then fragment name
+     */
+    public Map<String, Map<String, Integer>> getFanIn() {
+        return fanIn;
+    }
+
+    /**
+     * @return names of the exported fragments no operation reaches, by file import
+     */
+    public Map<String, Set<String>> getUnusedExports() {
+        return unusedExports;
+    }
+
+    /**
+     * @return file imports of the files without operations whose fragments no operation reaches
+     */
+    public Set<String> getDeadFiles() {
+        return deadFiles;
+    }
+
+    /**
+     * Write the dead files, one file import per line, for {@link GenerationOptions.Builder#prune}.
+     */
+    public void writePruneList(Path pruneList) throws IllegalStateException {
+        try {
+            Files.write(pruneList, deadFiles, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't write prune list to " + pruneList, e);
+        }
+    }
+
+    /**
+     * @return file imports on the prune list, empty if there's no list
+     */
+    static Set<String> readPruneList(Path pruneList) throws IllegalStateException {
+        if (pruneList == null) {
+            return Collections.emptySet();
+        }
+        try {
+            Set<String> prunedImports = new HashSet<>();
+            for (String line : Files.readAllLines(pruneList, StandardCharsets.UTF_8)) {
+                if (!line.isEmpty()) {
+                    prunedImports.add(line);
+                }
+            }
+            return prunedImports;
+        } catch (NoSuchFileException e) {
+            return Collections.emptySet();
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't read prune list " + pruneList, e);
+        }
+    }
+}
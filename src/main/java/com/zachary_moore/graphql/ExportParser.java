@@ -14,14 +14,14 @@ public class ExportParser {
     public static Map<String, FragmentDefinition> getExportedFragments(Document document) {
         Map<String, FragmentDefinition> exportedFragments = new HashMap<>();
         for (FragmentDefinition fragmentDefinition : document.getDefinitionsOfType(FragmentDefinition.class)) {
-            if (shouldExportFragment(fragmentDefinition)) {
+            if (isExported(fragmentDefinition)) {
                 exportedFragments.put(fragmentDefinition.getName(), fragmentDefinition);
             }
         }
         return exportedFragments;
     }
 
-    private static boolean shouldExportFragment(FragmentDefinition fragmentDefinition) {
+    public static boolean isExported(FragmentDefinition fragmentDefinition) {
         for (Directive directive : fragmentDefinition.getDirectives()) {
             if (directive.getName().equals(EXPORT_DIRECTIVE_NAME)) {
                 return true;
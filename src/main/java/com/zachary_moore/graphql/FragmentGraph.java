@@ -0,0 +1,483 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.Document;
+import graphql.language.FragmentDefinition;
+import graphql.language.FragmentSpread;
+
+import java.util.*;
+
+/**
+ * Graph of every fragment across every document of a run, built once up front.
+ *
+ * Fragments are int ids with their spreads stored as compressed adjacency arrays. Tarjan's algorithm finds every
+ * cycle in one linear pass and the closure of each exported fragment is then computed in topological order, reusing
+ * the closures of the exported fragments below it, so resolving an import is a lookup.
+ *
+ * Broken references and cycles are recorded against the fragments they affect and only reported when one of those
+ * fragments is imported, matching resolution on demand. Immutable once built, so safe to share between threads.
+ */
+class FragmentGraph {
+
+    static final int MISSING = -1;
+    private static final int UNVISITED = -1;
+
+    // Import paths and fragment names interned to ints, nodes are keyed by the pair of them
+    private final SymbolTable importSymbols = new SymbolTable();
+    private final SymbolTable nameSymbols = new SymbolTable();
+    private final NodeIndex nodeIndex;
+    // Node ids index into these arrays
+    private final int[] nodeImports;
+    private final FragmentDefinition[] nodeDefinitions;
+    private final boolean[] exported;
+    // Successors of node n are edgeTargets[edgeStarts[n]] until edgeTargets[edgeStarts[n + 1]]
+    private final int[] edgeStarts;
+    private final int[] edgeTargets;
+    // Problem with a node itself, a broken spread or being part of a cycle
+    private final String[] nodeErrors;
+    // First problem reachable from a node, only for exported nodes
+    private final String[] closureErrors;
+    // Ids of every fragment an exported node depends on including itself, only for exported nodes
+    private final int[][] closures;
+    private final List<List<String>> cycles = new ArrayList<>();
+
+    FragmentGraph(Map<String, Document> importToDocument) {
+        int nodeCount = 0;
+        for (Document document : importToDocument.values()) {
+            nodeCount += document.getDefinitionsOfType(FragmentDefinition.class).size();
+        }
+        nodeIndex = new NodeIndex(nodeCount);
+        nodeImports = new int[nodeCount];
+        nodeDefinitions = new FragmentDefinition[nodeCount];
+        exported = new boolean[nodeCount];
+        nodeErrors = new String[nodeCount];
+        closureErrors = new String[nodeCount];
+        closures = new int[nodeCount][];
+
+        int node = 0;
+        for (Map.Entry<String, Document> entry : importToDocument.entrySet()) {
+            int importId = importSymbols.intern(entry.getKey());
+            for (FragmentDefinition fragmentDefinition : entry.getValue().getDefinitionsOfType(FragmentDefinition.class)) {
+                if (!nodeIndex.put(importId, nameSymbols.intern(fragmentDefinition.getName()), node)) {
+                    throw new IllegalStateException("Fragment " + fragmentDefinition.getName() + " is defined more than once in " + entry.getKey());
+                }
+                nodeImports[node] = importId;
+                nodeDefinitions[node] = fragmentDefinition;
+                exported[node] = ExportParser.isExported(fragmentDefinition);
+                node++;
+            }
+        }
+
+        edgeStarts = new int[nodeCount + 1];
+        int[] targets = new int[Math.max(16, nodeCount)];
+        int edgeCount = 0;
+        for (node = 0; node < nodeCount; node++) {
+            edgeStarts[node] = edgeCount;
+            for (FragmentSpread fragmentSpread : FragmentSpreads.collect(nodeDefinitions[node])) {
+                int target;
+                try {
+                    target = findTarget(nodeImports[node], fragmentSpread);
+                } catch (IllegalStateException e) {
+                    if (nodeErrors[node] == null) {
+                        nodeErrors[node] = e.getMessage();
+                    }
+                    continue;
+                }
+                if (edgeCount == targets.length) {
+                    targets = Arrays.copyOf(targets, targets.length * 2);
+                }
+                targets[edgeCount++] = target;
+            }
+        }
+        edgeStarts[nodeCount] = edgeCount;
+        edgeTargets = Arrays.copyOf(targets, edgeCount);
+
+        int[] topologicalOrder = findCycles();
+        computeClosures(topologicalOrder);
+    }
+
+    /**
+     * @return ids of every fragment the exported fragment depends on, including itself, not to be modified
+     */
+    int[] getClosure(String importPath,
+                     String fragmentName) throws IllegalStateException {
+        return getClosure(getExportedNode(importPath, fragmentName));
+    }
+
+    int getExportedNode(String importPath,
+                        String fragmentName) throws IllegalStateException {
+        int node = findNode(importPath, fragmentName);
+        if (node == NodeIndex.MISSING || closures[node] == null) {
+            throw new IllegalStateException("Trying to import fragment that is not exported");
+        }
+        return node;
+    }
+
+    /**
+     * @param node id of an exported fragment
+     */
+    int[] getClosure(int node) throws IllegalStateException {
+        if (closureErrors[node] != null) {
+            throw new IllegalStateException(closureErrors[node]);
+        }
+        return closures[node];
+    }
+
+    /**
+     * @param roots fragments in the order they're first spread
+     * @return ids of every fragment the roots depend on, each after every fragment it spreads and otherwise in the
+     * order they're first spread, so the order only depends on the content of the documents and not on node ids.
+     * Only a topological order when the roots' closures are free of cycles.
+     */
+    int[] getTopologicalOrder(int[] roots,
+                              int rootCount) {
+        BitSet visited = new BitSet(nodeDefinitions.length);
+        int[] order = new int[16];
+        int orderSize = 0;
+        int[] stack = new int[16];
+        int[] edgeCursor = new int[16];
+        for (int i = 0; i < rootCount; i++) {
+            if (visited.get(roots[i])) {
+                continue;
+            }
+
+            visited.set(roots[i]);
+            int depth = 0;
+            stack[depth] = roots[i];
+            edgeCursor[depth++] = edgeStarts[roots[i]];
+            while (depth > 0) {
+                int node = stack[depth - 1];
+                if (edgeCursor[depth - 1] < edgeStarts[node + 1]) {
+                    int target = edgeTargets[edgeCursor[depth - 1]++];
+                    if (!visited.get(target)) {
+                        visited.set(target);
+                        if (depth == stack.length) {
+                            stack = Arrays.copyOf(stack, depth * 2);
+                            edgeCursor = Arrays.copyOf(edgeCursor, depth * 2);
+                        }
+                        stack[depth] = target;
+                        edgeCursor[depth++] = edgeStarts[target];
+                    }
+                    continue;
+                }
+
+                // Every fragment this one spreads is already in the order
+                depth--;
+                if (orderSize == order.length) {
+                    order = Arrays.copyOf(order, orderSize * 2);
+                }
+                order[orderSize++] = node;
+            }
+        }
+        return Arrays.copyOf(order, orderSize);
+    }
+
+    FragmentDefinition getDefinition(int node) {
+        return nodeDefinitions[node];
+    }
+
+    String getImportPath(int node) {
+        return importSymbols.get(nodeImports[node]);
+    }
+
+    boolean isExported(int node) {
+        return exported[node];
+    }
+
+    int getNodeCount() {
+        return nodeDefinitions.length;
+    }
+
+    /**
+     * @return every fragment cycle in the graph, each as the fragments along it starting and ending at the same one
+     */
+    List<List<String>> getCycles() {
+        return cycles;
+    }
+
+    /**
+     * @return id of the fragment, or {@link #MISSING} if no document of the run defines it
+     */
+    int findNode(String importPath,
+                 String fragmentName) {
+        int importId = importSymbols.lookup(importPath);
+        int nameId = nameSymbols.lookup(fragmentName);
+        if (importId == SymbolTable.MISSING || nameId == SymbolTable.MISSING) {
+            return NodeIndex.MISSING;
+        }
+        return nodeIndex.get(importId, nameId);
+    }
+
+    private int findTarget(int importId,
+                           FragmentSpread fragmentSpread) {
+        String spreadImportPath = ImportParser.getImportPath(fragmentSpread);
+        if (spreadImportPath == null) {
+            int nameId = nameSymbols.lookup(fragmentSpread.getName());
+            int target = nameId == SymbolTable.MISSING ? NodeIndex.MISSING : nodeIndex.get(importId, nameId);
+            if (target == NodeIndex.MISSING) {
+                throw new IllegalStateException("Trying to get fragment reference but not found in documents");
+            }
+            return target;
+        }
+
+        int target = findNode(spreadImportPath, fragmentSpread.getName());
+        if (target == NodeIndex.MISSING || !exported[target]) {
+            throw new IllegalStateException("Trying to import fragment that is not exported");
+        }
+        return target;
+    }
+
+    /**
+     * Iterative Tarjan strongly connected components, marking every node in a cycle.
+     *
+     * @return node ids in the order their components completed, so every node comes after all nodes it depends on
+     */
+    private int[] findCycles() {
+        int nodeCount = nodeDefinitions.length;
+        int[] index = new int[nodeCount];
+        int[] lowLink = new int[nodeCount];
+        int[] edgeCursor = new int[nodeCount];
+        boolean[] onStack = new boolean[nodeCount];
+        int[] componentStack = new int[nodeCount];
+        int[] callStack = new int[nodeCount];
+        int[] topologicalOrder = new int[nodeCount];
+        Arrays.fill(index, UNVISITED);
+
+        int nextIndex = 0;
+        int componentStackSize = 0;
+        int orderSize = 0;
+        List<int[]> cyclicComponents = new ArrayList<>();
+        for (int start = 0; start < nodeCount; start++) {
+            if (index[start] != UNVISITED) {
+                continue;
+            }
+
+            int callDepth = 0;
+            callStack[callDepth++] = start;
+            index[start] = lowLink[start] = nextIndex++;
+            edgeCursor[start] = edgeStarts[start];
+            componentStack[componentStackSize++] = start;
+            onStack[start] = true;
+            while (callDepth > 0) {
+                int node = callStack[callDepth - 1];
+                if (edgeCursor[node] < edgeStarts[node + 1]) {
+                    int target = edgeTargets[edgeCursor[node]++];
+                    if (index[target] == UNVISITED) {
+                        callStack[callDepth++] = target;
+                        index[target] = lowLink[target] = nextIndex++;
+                        edgeCursor[target] = edgeStarts[target];
+                        componentStack[componentStackSize++] = target;
+                        onStack[target] = true;
+                    } else if (onStack[target]) {
+                        lowLink[node] = Math.min(lowLink[node], index[target]);
+                    }
+                    continue;
+                }
+
+                callDepth--;
+                if (callDepth > 0) {
+                    int caller = callStack[callDepth - 1];
+                    lowLink[caller] = Math.min(lowLink[caller], lowLink[node]);
+                }
+                if (lowLink[node] != index[node]) {
+                    continue;
+                }
+
+                int componentStart = componentStackSize;
+                do {
+                    componentStackSize--;
+                    onStack[componentStack[componentStackSize]] = false;
+                    topologicalOrder[orderSize++] = componentStack[componentStackSize];
+                } while (componentStack[componentStackSize] != node);
+                int[] component = Arrays.copyOfRange(componentStack, componentStackSize, componentStart);
+                if (component.length > 1 || hasEdge(node, node)) {
+                    cyclicComponents.add(component);
+                }
+            }
+        }
+
+        for (int[] component : cyclicComponents) {
+            cycles.add(describeCycle(component));
+        }
+        if (!cycles.isEmpty()) {
+            StringBuilder message = new StringBuilder("Cycle in fragment resolution:");
+            for (List<String> cycle : cycles) {
+                message.append(" [").append(String.join(" -> ", cycle)).append("]");
+            }
+            for (int[] component : cyclicComponents) {
+                for (int node : component) {
+                    nodeErrors[node] = message.toString();
+                }
+            }
+        }
+        return topologicalOrder;
+    }
+
+    private boolean hasEdge(int from,
+                            int to) {
+        for (int edge = edgeStarts[from]; edge < edgeStarts[from + 1]; edge++) {
+            if (edgeTargets[edge] == to) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return fragments along a shortest cycle through the first node of the component
+     */
+    private List<String> describeCycle(int[] component) {
+        Set<Integer> members = new HashSet<>();
+        for (int node : component) {
+            members.add(node);
+        }
+
+        int start = component[0];
+        Map<Integer, Integer> parents = new HashMap<>();
+        Deque<Integer> nodesToVisit = new ArrayDeque<>(Collections.singletonList(start));
+        int last = start;
+        search:
+        while (!nodesToVisit.isEmpty()) {
+            int node = nodesToVisit.poll();
+            for (int edge = edgeStarts[node]; edge < edgeStarts[node + 1]; edge++) {
+                int target = edgeTargets[edge];
+                if (target == start) {
+                    last = node;
+                    break search;
+                }
+                if (members.contains(target) && !parents.containsKey(target)) {
+                    parents.put(target, node);
+                    nodesToVisit.add(target);
+                }
+            }
+        }
+
+        LinkedList<String> cycle = new LinkedList<>();
+        cycle.add(describe(start));
+        for (int node = last; node != start; node = parents.get(node)) {
+            cycle.addFirst(describe(node));
+        }
+        cycle.addFirst(describe(start));
+        return cycle;
+    }
+
+    private String describe(int node) {
+        return importSymbols.get(nodeImports[node]) + "#" + nodeDefinitions[node].getName();
+    }
+
+    private void computeClosures(int[] topologicalOrder) {
+        int[] visitedStamp = new int[nodeDefinitions.length];
+        int stamp = 0;
+        int[] nodesToVisit = new int[Math.max(16, edgeTargets.length + 1)];
+        int[] closure = new int[nodeDefinitions.length];
+        for (int root : topologicalOrder) {
+            if (!exported[root]) {
+                continue;
+            }
+
+            stamp++;
+            String closureError = null;
+            int closureSize = 0;
+            int visitCount = 0;
+            nodesToVisit[visitCount++] = root;
+            while (visitCount > 0) {
+                int node = nodesToVisit[--visitCount];
+                if (visitedStamp[node] == stamp) {
+                    continue;
+                }
+
+                // Exported nodes below us are already complete so take their closure rather than walking it again
+                if (node != root && closures[node] != null) {
+                    if (closureError == null) {
+                        closureError = closureErrors[node];
+                    }
+                    for (int dependency : closures[node]) {
+                        if (visitedStamp[dependency] != stamp) {
+                            visitedStamp[dependency] = stamp;
+                            closure[closureSize++] = dependency;
+                        }
+                    }
+                    continue;
+                }
+
+                visitedStamp[node] = stamp;
+                closure[closureSize++] = node;
+                if (closureError == null) {
+                    closureError = nodeErrors[node];
+                }
+                for (int edge = edgeStarts[node]; edge < edgeStarts[node + 1]; edge++) {
+                    if (visitedStamp[edgeTargets[edge]] != stamp) {
+                        if (visitCount == nodesToVisit.length) {
+                            nodesToVisit = Arrays.copyOf(nodesToVisit, nodesToVisit.length * 2);
+                        }
+                        nodesToVisit[visitCount++] = edgeTargets[edge];
+                    }
+                }
+            }
+
+            closures[root] = Arrays.copyOf(closure, closureSize);
+            closureErrors[root] = closureError;
+        }
+    }
+
+    /**
+     * Open addressing table from a pair of import and fragment name ids to node id, avoiding boxed keys.
+     */
+    private static class NodeIndex {
+
+        static final int MISSING = FragmentGraph.MISSING;
+
+        private final long[] keys;
+        private final int[] values;
+        private final int mask;
+
+        NodeIndex(int expectedSize) {
+            int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+            keys = new long[capacity];
+            values = new int[capacity];
+            mask = capacity - 1;
+            Arrays.fill(values, MISSING);
+        }
+
+        /**
+         * @return false if the pair was already present
+         */
+        boolean put(int importId,
+                    int nameId,
+                    int node) {
+            long key = key(importId, nameId);
+            int slot = slot(key);
+            while (values[slot] != MISSING) {
+                if (keys[slot] == key) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = node;
+            return true;
+        }
+
+        int get(int importId,
+                int nameId) {
+            long key = key(importId, nameId);
+            int slot = slot(key);
+            while (values[slot] != MISSING) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return MISSING;
+        }
+
+        private static long key(int importId,
+                                int nameId) {
+            return ((long) importId << 32) | (nameId & 0xFFFFFFFFL);
+        }
+
+        private int slot(long key) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Renames imported fragments after where they're imported from, set with
+ * {@link GenerationOptions.Builder#namespaceImports(boolean)}.
+ *
+ * An imported fragment and every fragment it depends on are named after their import path, with each character which
+ * can't be in a name replaced by an underscore, then two underscores and their own name, e.g. {@code fragment
+ * simpleTweet} of {@code package1.tweetFragment} becomes {@code package1_tweetFragment__simpleTweet}. Spreads of
+ * them are renamed to match, both in the imported fragments and in the importing document. Each fragment is renamed
+ * once per run however many documents import it, the renamed definitions are shared between their documents.
+ *
+ * Built once per run from its fragment graph and safe for concurrent use.
+ */
+class FragmentNamespaces {
+
+    private final FragmentGraph fragmentGraph;
+    // Renamed definitions by node, filled in as they're first needed
+    private final AtomicReferenceArray<FragmentDefinition> renamedDefinitions;
+
+    FragmentNamespaces(FragmentGraph fragmentGraph) {
+        this.fragmentGraph = fragmentGraph;
+        this.renamedDefinitions = new AtomicReferenceArray<>(fragmentGraph.getNodeCount());
+    }
+
+    static String getNamespacedName(String importPath,
+                                    String fragmentName) {
+        StringBuilder name = new StringBuilder(importPath.length() + fragmentName.length() + 3);
+        if (importPath.isEmpty() || Character.isDigit(importPath.charAt(0))) {
+            name.append('_');
+        }
+        for (int i = 0; i < importPath.length(); i++) {
+            char c = importPath.charAt(i);
+            boolean isNameChar = c == '_' || (c >= '0' && c <= '9') || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+            name.append(isNameChar ? c : '_');
+        }
+        return name.append("__").append(fragmentName).toString();
+    }
+
+    /**
+     * @param node fragment in a closure the graph has already checked
+     * @return the fragment renamed, with its spreads renamed to the fragments they resolve to
+     */
+    FragmentDefinition getDefinition(int node) {
+        FragmentDefinition renamed = renamedDefinitions.get(node);
+        if (renamed != null) {
+            return renamed;
+        }
+        FragmentDefinition fragmentDefinition = fragmentGraph.getDefinition(node);
+        String importPath = fragmentGraph.getImportPath(node);
+        String name = getNamespacedName(importPath, fragmentDefinition.getName());
+        SelectionSet selectionSet = rename(fragmentDefinition.getSelectionSet(), importPath);
+        renamed = fragmentDefinition.transform(builder -> builder.name(name).selectionSet(selectionSet));
+        // Racing renames of the same fragment keep the first, so every document shares one definition
+        return renamedDefinitions.compareAndSet(node, null, renamed) ? renamed : renamedDefinitions.get(node);
+    }
+
+    /**
+     * @return the definition of an importing document with its imported spreads renamed, or the same definition if
+     * it has none
+     */
+    static Definition renameImports(Definition definition) {
+        if (definition instanceof OperationDefinition) {
+            OperationDefinition operationDefinition = (OperationDefinition) definition;
+            SelectionSet selectionSet = rename(operationDefinition.getSelectionSet(), null);
+            return selectionSet == operationDefinition.getSelectionSet()
+                    ? definition
+                    : operationDefinition.transform(builder -> builder.selectionSet(selectionSet));
+        }
+        if (definition instanceof FragmentDefinition) {
+            FragmentDefinition fragmentDefinition = (FragmentDefinition) definition;
+            SelectionSet selectionSet = rename(fragmentDefinition.getSelectionSet(), null);
+            return selectionSet == fragmentDefinition.getSelectionSet()
+                    ? definition
+                    : fragmentDefinition.transform(builder -> builder.selectionSet(selectionSet));
+        }
+        return definition;
+    }
+
+    /**
+     * @param importPath of the fragments spread without an import, or null to leave them as they are
+     * @return the selection set with its spreads renamed, or the same selection set if none are
+     */
+    private static SelectionSet rename(SelectionSet selectionSet,
+                                       String importPath) {
+        if (selectionSet == null) {
+            return null;
+        }
+        List<Selection> selections = new ArrayList<>(selectionSet.getSelections().size());
+        boolean changed = false;
+        for (Selection selection : selectionSet.getSelections()) {
+            Selection renamed = selection;
+            if (selection instanceof FragmentSpread) {
+                FragmentSpread fragmentSpread = (FragmentSpread) selection;
+                String spreadImportPath = ImportParser.getImportPath(fragmentSpread);
+                String targetImportPath = spreadImportPath == null ? importPath : spreadImportPath;
+                if (targetImportPath != null) {
+                    String name = getNamespacedName(targetImportPath, fragmentSpread.getName());
+                    renamed = fragmentSpread.transform(builder -> builder.name(name));
+                }
+            } else if (selection instanceof Field) {
+                Field field = (Field) selection;
+                SelectionSet fieldSelectionSet = rename(field.getSelectionSet(), importPath);
+                if (fieldSelectionSet != field.getSelectionSet()) {
+                    renamed = field.transform(builder -> builder.selectionSet(fieldSelectionSet));
+                }
+            } else if (selection instanceof InlineFragment) {
+                InlineFragment inlineFragment = (InlineFragment) selection;
+                SelectionSet fragmentSelectionSet = rename(inlineFragment.getSelectionSet(), importPath);
+                if (fragmentSelectionSet != inlineFragment.getSelectionSet()) {
+                    renamed = inlineFragment.transform(builder -> builder.selectionSet(fragmentSelectionSet));
+                }
+            }
+            changed |= renamed != selection;
+            selections.add(renamed);
+        }
+        return changed ? selectionSet.transform(builder -> builder.selections(selections)) : selectionSet;
+    }
+}
@@ -0,0 +1,64 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only collection of fragment spreads.
+ *
+ * Spreads can only appear in selection sets so we walk those directly instead of paying for a full
+ * {@link AstTransformer} or {@link NodeTraverser} pass over every node.
+ */
+class FragmentSpreads {
+
+    /**
+     * @return every fragment spread in the document's operations and fragments, in document order
+     */
+    static List<FragmentSpread> collect(Document document) {
+        List<FragmentSpread> fragmentSpreads = new ArrayList<>();
+        for (Definition definition : document.getDefinitions()) {
+            if (definition instanceof OperationDefinition) {
+                collect(((OperationDefinition) definition).getSelectionSet(), fragmentSpreads);
+            } else if (definition instanceof FragmentDefinition) {
+                collect(((FragmentDefinition) definition).getSelectionSet(), fragmentSpreads);
+            }
+        }
+        return fragmentSpreads;
+    }
+
+    /**
+     * @return every fragment spread directly within the operation, not following spreads, in document order
+     */
+    static List<FragmentSpread> collect(OperationDefinition operationDefinition) {
+        List<FragmentSpread> fragmentSpreads = new ArrayList<>();
+        collect(operationDefinition.getSelectionSet(), fragmentSpreads);
+        return fragmentSpreads;
+    }
+
+    /**
+     * @return every fragment spread directly within the fragment, not following spreads, in document order
+     */
+    static List<FragmentSpread> collect(FragmentDefinition fragmentDefinition) {
+        List<FragmentSpread> fragmentSpreads = new ArrayList<>();
+        collect(fragmentDefinition.getSelectionSet(), fragmentSpreads);
+        return fragmentSpreads;
+    }
+
+    private static void collect(SelectionSet selectionSet,
+                                List<FragmentSpread> fragmentSpreads) {
+        if (selectionSet == null) {
+            return;
+        }
+        for (Selection selection : selectionSet.getSelections()) {
+            if (selection instanceof FragmentSpread) {
+                fragmentSpreads.add((FragmentSpread) selection);
+            } else if (selection instanceof Field) {
+                collect(((Field) selection).getSelectionSet(), fragmentSpreads);
+            } else if (selection instanceof InlineFragment) {
+                collect(((InlineFragment) selection).getSelectionSet(), fragmentSpreads);
+            }
+        }
+    }
+}
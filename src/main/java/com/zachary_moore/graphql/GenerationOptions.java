@@ -0,0 +1,272 @@
+package com.zachary_moore.graphql;
+
+import graphql.schema.GraphQLSchema;
+
+import java.nio.file.Path;
+import java.util.concurrent.Executor;
+
+/**
+ * Options controlling how {@link DocumentReader#generateDocuments(java.util.List, String, GenerationOptions)} runs.
+ *
+ * Defaults reproduce the original single threaded behaviour.
+ */
+public class GenerationOptions {
+
+    private final Executor executor;
+    private final int parallelism;
+    private final Path parseCacheDirectory;
+    private final boolean preScan;
+    private final ResolutionListener listener;
+    private final Path pruneList;
+    private final ModuleIdStrategy moduleIdStrategy;
+    private final boolean treeShake;
+    private final boolean inlineSingleUseFragments;
+    private final boolean namespaceImports;
+    private final LibraryCache libraryCache;
+    private final GraphQLSchema schema;
+
+    private GenerationOptions(Builder builder) {
+        this.executor = builder.executor;
+        this.parallelism = builder.parallelism;
+        this.parseCacheDirectory = builder.parseCacheDirectory;
+        this.preScan = builder.preScan;
+        this.listener = builder.listener;
+        this.pruneList = builder.pruneList;
+        this.moduleIdStrategy = builder.moduleIdStrategy;
+        this.treeShake = builder.treeShake;
+        this.inlineSingleUseFragments = builder.inlineSingleUseFragments;
+        this.namespaceImports = builder.namespaceImports;
+        this.libraryCache = builder.libraryCache;
+        this.schema = builder.schema;
+    }
+
+    public static GenerationOptions defaults() {
+        return newOptions().build();
+    }
+
+    public static Builder newOptions() {
+        return new Builder();
+    }
+
+    /**
+     * @return executor used to parse and resolve files, or null if one should be created from {@link #getParallelism()}
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @return number of worker threads to create when no executor is supplied, 1 meaning run on the calling thread
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return directory parsed documents are cached in between runs, or null if every file is parsed
+     */
+    public Path getParseCacheDirectory() {
+        return parseCacheDirectory;
+    }
+
+    /**
+     * @return true if files are scanned before parsing so files which can't contribute are never parsed
+     */
+    public boolean isPreScan() {
+        return preScan;
+    }
+
+    /**
+     * @return listener told about the run, or null if the run isn't instrumented
+     */
+    public ResolutionListener getListener() {
+        return listener;
+    }
+
+    /**
+     * @return prune list written by {@link ExportAnalysis#writePruneList}, or null if every file is parsed
+     */
+    public Path getPruneList() {
+        return pruneList;
+    }
+
+    /**
+     * @return how files are mapped to the module ids they're imported by
+     */
+    public ModuleIdStrategy getModuleIdStrategy() {
+        return moduleIdStrategy;
+    }
+
+    /**
+     * @return true if fragments no operation reaches are removed from final documents
+     */
+    public boolean isTreeShake() {
+        return treeShake;
+    }
+
+    /**
+     * @return true if imported fragments spread once are inlined when tree shaking
+     */
+    public boolean isInlineSingleUseFragments() {
+        return inlineSingleUseFragments;
+    }
+
+    /**
+     * @return true if imported fragments are renamed after their import path in final documents
+     */
+    public boolean isNamespaceImports() {
+        return namespaceImports;
+    }
+
+    /**
+     * @return cache of parsed libraries shared with other runs, or null if every library is parsed by this run
+     */
+    public LibraryCache getLibraryCache() {
+        return libraryCache;
+    }
+
+    /**
+     * @return schema final documents are validated against, or null if they aren't validated
+     */
+    public GraphQLSchema getSchema() {
+        return schema;
+    }
+
+    public static class Builder {
+
+        private Executor executor;
+        private int parallelism = 1;
+        private Path parseCacheDirectory;
+        private boolean preScan;
+        private ResolutionListener listener;
+        private Path pruneList;
+        private ModuleIdStrategy moduleIdStrategy = ModuleIdStrategy.dotted();
+        private boolean treeShake;
+        private boolean inlineSingleUseFragments;
+        private boolean namespaceImports;
+        private LibraryCache libraryCache;
+        private GraphQLSchema schema;
+
+        private Builder() {
+        }
+
+        /**
+         * Run parsing and resolution on the given executor, e.g. a {@link java.util.concurrent.ForkJoinPool}
+         * or a virtual thread per task executor. The caller owns the executor and is responsible for shutting it down.
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Run parsing and resolution on a {@link java.util.concurrent.ForkJoinPool} of this size which is
+         * created and shut down for each call. Ignored if an executor is supplied.
+         */
+        public Builder parallelism(int parallelism) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("Parallelism must be at least 1");
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Cache parsed documents in this directory keyed by file content, so files which haven't changed since an
+         * earlier run are loaded instead of parsed. Created if it doesn't exist.
+         */
+        public Builder parseCache(Path parseCacheDirectory) {
+            this.parseCacheDirectory = parseCacheDirectory;
+            return this;
+        }
+
+        /**
+         * Scan each file's bytes before parsing it. Files with no operations which export nothing aren't parsed at
+         * all, so syntax errors in them aren't reported, and when streaming, operation files which export nothing are
+         * only parsed once.
+         */
+        public Builder preScan(boolean preScan) {
+            this.preScan = preScan;
+            return this;
+        }
+
+        /**
+         * Report phase timings, parses and fragment resolution to the listener, e.g. a {@link JsonSummaryListener}.
+         */
+        public Builder listener(ResolutionListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        /**
+         * Leave the dead fragment-only files named in this prune list out of parsing, see
+         * {@link ExportAnalysis#writePruneList}. A listed file is still parsed if it gained operations or something
+         * in the run imports from it, so a stale list only costs the parses it no longer saves. Ignored if the file
+         * doesn't exist.
+         */
+        public Builder prune(Path pruneList) {
+            this.pruneList = pruneList;
+            return this;
+        }
+
+        /**
+         * Map files to module ids with this strategy instead of {@link ModuleIdStrategy#dotted()}.
+         */
+        public Builder moduleIds(ModuleIdStrategy moduleIdStrategy) {
+            this.moduleIdStrategy = moduleIdStrategy;
+            return this;
+        }
+
+        /**
+         * Remove selections excluded by a constant {@code @include} or {@code @skip} from final documents with
+         * operations, and then the fragment definitions no operation reaches any more. Off by default.
+         */
+        public Builder treeShake(boolean treeShake) {
+            this.treeShake = treeShake;
+            return this;
+        }
+
+        /**
+         * When tree shaking also replace the single spread of an imported fragment with an inline fragment holding
+         * its selections, dropping the definition. Off by default.
+         */
+        public Builder inlineSingleUseFragments(boolean inlineSingleUseFragments) {
+            this.inlineSingleUseFragments = inlineSingleUseFragments;
+            return this;
+        }
+
+        /**
+         * Rename imported fragments, and the fragments they depend on, after the import path they come from, e.g.
+         * {@code package1_nested_QueryA__simpleTweet}, and their spreads to match. Fragments of a document can then
+         * share names with the fragments it imports. Off by default.
+         */
+        public Builder namespaceImports(boolean namespaceImports) {
+            this.namespaceImports = namespaceImports;
+            return this;
+        }
+
+        /**
+         * Look fragment libraries up in this cache before parsing them, and keep the ones parsed in it. Share one
+         * cache between the runs of a process, e.g. builds of many roots using the same libraries.
+         */
+        public Builder libraryCache(LibraryCache libraryCache) {
+            this.libraryCache = libraryCache;
+            return this;
+        }
+
+        /**
+         * Validate every final document against the schema as it's resolved, failing the run with the errors of an
+         * invalid document. Each imported fragment is validated once per run rather than once per document importing
+         * it. Incremental runs only validate the documents they generate again, unless the schema differs from the one
+         * of the previous run, in which case every document is generated and validated again.
+         */
+        public Builder schema(GraphQLSchema schema) {
+            this.schema = schema;
+            return this;
+        }
+
+        public GenerationOptions build() {
+            return new GenerationOptions(this);
+        }
+    }
+}
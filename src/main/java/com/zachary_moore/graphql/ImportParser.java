@@ -0,0 +1,57 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.*;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+public class ImportParser {
+
+    private static final String IMPORT_DIRECTIVE_NAME = "import";
+    private static final String IMPORT_DIRECTIVE_FROM_ARGUMENT = "from";
+
+    /**
+     * @return map of import path to the names of the fragments imported from it, in document order
+     */
+    public static Map<String, Set<String>> getImportedFragments(Document document) {
+        Map<String, Set<String>> importedFragments = new LinkedHashMap<>();
+        for (FragmentSpread fragmentSpread : FragmentSpreads.collect(document)) {
+            String importPath = getImportPath(fragmentSpread);
+            if (importPath != null) {
+                importedFragments.computeIfAbsent(importPath, key -> new LinkedHashSet<>()).add(fragmentSpread.getName());
+            }
+        }
+        return importedFragments;
+    }
+
+    /**
+     * @return the path given to the spread's import directive or null if the spread is not imported
+     */
+    public static String getImportPath(FragmentSpread fragmentSpread) {
+        Directive importDirective = getImportDirective(fragmentSpread);
+        if (importDirective == null) {
+            return null;
+        }
+
+        Argument fromArgument = importDirective.getArgument(IMPORT_DIRECTIVE_FROM_ARGUMENT);
+        if (fromArgument == null || !(fromArgument.getValue() instanceof StringValue)) {
+            throw new IllegalStateException("Import directive does not have required argument from:");
+        }
+        String importPath = ((StringValue) fromArgument.getValue()).getValue();
+        if (importPath == null) {
+            throw new IllegalStateException("Import directive does not have required argument from:");
+        }
+        return importPath;
+    }
+
+    private static Directive getImportDirective(FragmentSpread fragmentSpread) {
+        for (Directive directive : fragmentSpread.getDirectives()) {
+            if (directive.getName().equals(IMPORT_DIRECTIVE_NAME)) {
+                return directive;
+            }
+        }
+        return null;
+    }
+}
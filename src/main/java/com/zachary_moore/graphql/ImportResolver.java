@@ -0,0 +1,370 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.Document;
+import graphql.language.FragmentDefinition;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Long lived resolver over a query root, e.g. for a dev server.
+ *
+ * Built once from the root, it keeps the parsed documents, export tables and final documents in memory and updates
+ * them incrementally as files change, either through {@link #refresh(Collection)} or by watching the root with
+ * {@link #startWatching()}. Only changed files are parsed again and only the files transitively importing from them
+ * are resolved again.
+ *
+ * Every update builds a new immutable snapshot which replaces the previous one at once, so concurrent readers never
+ * see half updated state. Files which fail to parse or resolve are left out of the documents and reported through
+ * {@link #getErrors()} instead of failing the whole resolver.
+ */
+public class ImportResolver implements Closeable {
+
+    private static final String GRAPHQL_FILE_EXTENSION = ".graphql";
+    // Editors often save a file in several steps, wait this long for events to settle before updating
+    private static final long WATCH_SETTLE_MILLIS = 20;
+
+    private final Path root;
+    private final ModuleIdStrategy moduleIdStrategy;
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+    private volatile Snapshot snapshot = new Snapshot();
+    private WatchService watchService;
+    private Thread watchThread;
+
+    public ImportResolver(Path root) throws IllegalStateException {
+        this(root, ModuleIdStrategy.dotted());
+    }
+
+    public ImportResolver(Path root,
+                          ModuleIdStrategy moduleIdStrategy) throws IllegalStateException {
+        this.root = root;
+        this.moduleIdStrategy = moduleIdStrategy;
+        refresh(listGraphQLFiles(root));
+    }
+
+    /**
+     * @param path path of a query file under the root
+     * @return the final document for the file, or null if it has no operations, doesn't exist or has errors
+     */
+    public Document get(String path) {
+        return snapshot.finalDocuments.get(path);
+    }
+
+    /**
+     * @return map of file path to final document for every file with operations, as of a single update
+     */
+    public Map<String, Document> getDocuments() {
+        return snapshot.finalDocuments;
+    }
+
+    /**
+     * @return map of file path to the reason the file couldn't be parsed or resolved, as of a single update, along
+     * with directories which couldn't be watched and the root if refreshing it while watching failed
+     */
+    public Map<String, String> getErrors() {
+        return snapshot.errors;
+    }
+
+    /**
+     * Bring the resolver up to date with the given files, which may have been added, changed or deleted.
+     * Deleted directories remove every file below them.
+     */
+    public synchronized void refresh(Collection<Path> changedPaths) {
+        Snapshot previous = snapshot;
+        Map<String, Document> parsedDocuments = new HashMap<>(previous.parsedDocuments);
+        Map<String, DocumentIndex.Entry> entries = new HashMap<>(previous.entries);
+        Map<String, Map<String, FragmentDefinition>> exports = new HashMap<>(previous.exports);
+        Map<String, Document> finalDocuments = new HashMap<>(previous.finalDocuments);
+        Map<String, String> errors = new HashMap<>(previous.errors);
+
+        Set<String> changedFiles = new LinkedHashSet<>();
+        for (Path changedPath : changedPaths) {
+            if (Files.isDirectory(changedPath)) {
+                changedFiles.addAll(listGraphQLFiles(changedPath).stream().map(Path::toString).collect(Collectors.toList()));
+            } else if (Files.exists(changedPath)) {
+                if (changedPath.toString().endsWith(GRAPHQL_FILE_EXTENSION)) {
+                    changedFiles.add(changedPath.toString());
+                }
+            } else {
+                String deletedPath = changedPath.toString();
+                for (String knownPath : entries.keySet()) {
+                    if (knownPath.equals(deletedPath) || knownPath.startsWith(deletedPath + File.separator)) {
+                        changedFiles.add(knownPath);
+                    }
+                }
+                errors.keySet().removeIf(path -> path.equals(deletedPath) || path.startsWith(deletedPath + File.separator));
+            }
+        }
+
+        ModuleIds moduleIds = new ModuleIds(root.toString(), moduleIdStrategy);
+        Set<String> dirtyModules = new HashSet<>();
+        for (String path : changedFiles) {
+            DocumentIndex.Entry previousEntry = entries.remove(path);
+            if (previousEntry != null) {
+                dirtyModules.add(previousEntry.moduleId);
+                exports.remove(previousEntry.moduleId);
+            }
+            parsedDocuments.remove(path);
+            finalDocuments.remove(path);
+            errors.remove(path);
+
+            File file = new File(path);
+            if (!file.isFile()) {
+                continue;
+            }
+            try {
+                byte[] content = Files.readAllBytes(file.toPath());
+                Document document = DocumentReader.parse(file, new String(content, StandardCharsets.UTF_8));
+                checkFragmentNames(document, path);
+                DocumentIndex.Entry entry = DocumentIndex.createEntry(file, moduleIds.get(file), DocumentIndex.hash(content), document);
+                parsedDocuments.put(path, document);
+                entries.put(path, entry);
+                dirtyModules.add(entry.moduleId);
+                Map<String, FragmentDefinition> exportedFragments = ExportParser.getExportedFragments(document);
+                if (!exportedFragments.isEmpty()) {
+                    exports.put(entry.moduleId, exportedFragments);
+                }
+            } catch (IOException | IllegalStateException e) {
+                errors.put(path, e.getMessage());
+            }
+        }
+
+        Set<String> affectedFiles = new LinkedHashSet<>(changedFiles);
+        affectedFiles.addAll(DocumentIndex.getTransitiveImporters(entries.values(), dirtyModules));
+
+        // The generator only needs the documents the affected files import from
+        Map<String, Document> importToDocument = new HashMap<>();
+        for (String requiredPath : DocumentIndex.getTransitiveImports(entries, affectedFiles)) {
+            DocumentIndex.Entry entry = entries.get(requiredPath);
+            if (entry != null) {
+                importToDocument.put(entry.moduleId, parsedDocuments.get(requiredPath));
+            }
+        }
+        DocumentGenerator documentGenerator = null;
+        String generatorError = null;
+        try {
+            documentGenerator = new DocumentGenerator(importToDocument);
+        } catch (IllegalStateException e) {
+            // Files are checked as they're parsed, so this only fails the affected files rather than the update
+            generatorError = e.getMessage();
+        }
+        for (String path : affectedFiles) {
+            Document document = parsedDocuments.get(path);
+            if (document == null) {
+                continue;
+            }
+            finalDocuments.remove(path);
+            errors.remove(path);
+            if (!entries.get(path).hasOperations) {
+                continue;
+            }
+            try {
+                if (documentGenerator == null) {
+                    throw new IllegalStateException(generatorError);
+                }
+                finalDocuments.put(path, documentGenerator.getFinalDocument(document, exports));
+            } catch (IllegalStateException e) {
+                errors.put(path, "Could not resolve imports for " + path + ": " + e.getMessage());
+            }
+        }
+
+        snapshot = new Snapshot(parsedDocuments, entries, exports, finalDocuments, errors);
+    }
+
+    /**
+     * Watch the root for changes on a daemon thread and refresh as they happen, until closed.
+     */
+    public synchronized void startWatching() throws IOException {
+        if (watchThread != null) {
+            return;
+        }
+        watchService = root.getFileSystem().newWatchService();
+        registerDirectories(root);
+        // Pick up whatever changed between the last refresh and the watches being registered
+        refresh(findChangedFiles());
+        watchThread = new Thread(this::watch, "graphql-import-resolver-" + root.getFileName());
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (watchThread == null) {
+            return;
+        }
+        watchThread.interrupt();
+        watchService.close();
+        watchThread = null;
+    }
+
+    private void watch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                Set<Path> changedPaths = new LinkedHashSet<>();
+                boolean overflowed = false;
+                while (key != null) {
+                    overflowed |= collectChanges(key, changedPaths);
+                    key = watchService.poll(WATCH_SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+
+                // A failed batch is reported against the root and retried by the next one, the thread keeps watching
+                try {
+                    if (overflowed) {
+                        // We lost events so compare everything we know against everything there is
+                        changedPaths.addAll(findChangedFiles());
+                    }
+                    refresh(changedPaths);
+                    setError(root, null);
+                } catch (RuntimeException e) {
+                    setError(root, "Could not refresh " + root + ": " + e.getMessage());
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        }
+    }
+
+    /**
+     * @param message reason the path couldn't be watched or refreshed, or null to clear it
+     */
+    private synchronized void setError(Path path,
+                                       String message) {
+        Snapshot previous = snapshot;
+        if (Objects.equals(previous.errors.get(path.toString()), message)) {
+            return;
+        }
+        Map<String, String> errors = new HashMap<>(previous.errors);
+        if (message == null) {
+            errors.remove(path.toString());
+        } else {
+            errors.put(path.toString(), message);
+        }
+        snapshot = new Snapshot(previous.parsedDocuments, previous.entries, previous.exports, previous.finalDocuments, errors);
+    }
+
+    private boolean collectChanges(WatchKey key,
+                                   Set<Path> changedPaths) {
+        boolean overflowed = false;
+        Path directory = watchedDirectories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW || directory == null) {
+                overflowed = true;
+                continue;
+            }
+
+            Path changedPath = directory.resolve((Path) event.context());
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(changedPath)) {
+                try {
+                    registerDirectories(changedPath);
+                } catch (IllegalStateException e) {
+                    // A directory deleted before it could be registered is picked up as deleted by the refresh
+                    if (Files.isDirectory(changedPath)) {
+                        setError(changedPath, e.getMessage());
+                    }
+                }
+            }
+            changedPaths.add(changedPath);
+        }
+        if (!key.reset()) {
+            watchedDirectories.remove(key);
+        }
+        return overflowed;
+    }
+
+    private void registerDirectories(Path directory) {
+        try (Stream<Path> directories = Files.walk(directory)) {
+            for (Path subdirectory : directories.filter(Files::isDirectory).collect(Collectors.toList())) {
+                watchedDirectories.put(subdirectory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), subdirectory);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            throw new IllegalStateException("Couldn't watch " + directory, e);
+        }
+    }
+
+    /**
+     * @return files under the root which were added, changed or deleted since they were last refreshed, along with
+     * files which had errors
+     */
+    private List<Path> findChangedFiles() {
+        Snapshot current = snapshot;
+        List<Path> changedPaths = new ArrayList<>();
+        Set<String> deletedPaths = new HashSet<>(current.entries.keySet());
+        for (Path path : listGraphQLFiles(root)) {
+            DocumentIndex.Entry entry = current.entries.get(path.toString());
+            deletedPaths.remove(path.toString());
+            try {
+                if (entry == null || !Arrays.equals(entry.contentHash, DocumentIndex.hash(Files.readAllBytes(path)))) {
+                    changedPaths.add(path);
+                }
+            } catch (IOException e) {
+                // Refreshing it reports the error
+                changedPaths.add(path);
+            }
+        }
+        for (String deletedPath : deletedPaths) {
+            changedPaths.add(Paths.get(deletedPath));
+        }
+        return changedPaths;
+    }
+
+    private static void checkFragmentNames(Document document,
+                                           String path) {
+        Set<String> fragmentNames = new HashSet<>();
+        for (FragmentDefinition fragmentDefinition : document.getDefinitionsOfType(FragmentDefinition.class)) {
+            if (!fragmentNames.add(fragmentDefinition.getName())) {
+                throw new IllegalStateException("Fragment " + fragmentDefinition.getName() + " is defined more than once in " + path);
+            }
+        }
+    }
+
+    private static List<Path> listGraphQLFiles(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.filter(path -> Files.isRegularFile(path) && path.toString().endsWith(GRAPHQL_FILE_EXTENSION))
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't list files under " + directory, e);
+        }
+    }
+
+    private static class Snapshot {
+
+        // Map of file path to parsed document
+        private final Map<String, Document> parsedDocuments;
+        // Map of file path to its exports and imports
+        private final Map<String, DocumentIndex.Entry> entries;
+        // Map of file import to exported fragments, only for files which export
+        private final Map<String, Map<String, FragmentDefinition>> exports;
+        // Map of file path to final document, only for files with operations
+        private final Map<String, Document> finalDocuments;
+        // Map of file path to the reason it couldn't be parsed or resolved
+        private final Map<String, String> errors;
+
+        private Snapshot() {
+            this(new HashMap<>(), new HashMap<>(), new HashMap<>(), new HashMap<>(), new HashMap<>());
+        }
+
+        private Snapshot(Map<String, Document> parsedDocuments,
+                         Map<String, DocumentIndex.Entry> entries,
+                         Map<String, Map<String, FragmentDefinition>> exports,
+                         Map<String, Document> finalDocuments,
+                         Map<String, String> errors) {
+            this.parsedDocuments = parsedDocuments;
+            this.entries = entries;
+            this.exports = exports;
+            this.finalDocuments = Collections.unmodifiableMap(finalDocuments);
+            this.errors = Collections.unmodifiableMap(errors);
+        }
+    }
+}
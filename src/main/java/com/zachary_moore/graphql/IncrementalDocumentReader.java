@@ -0,0 +1,250 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.Document;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Incremental variant of {@link DocumentReader#generateDocuments}.
+ *
+ * An index of every file's content hash, exports and imports is kept on disk between runs. A later run only parses
+ * the files which changed, re-resolves the files which transitively import from them, and reports what changed
+ * relative to the previous run. Applying every result in order to an empty map gives the same documents as
+ * {@link DocumentReader#generateDocuments} over the current files.
+ */
+public class IncrementalDocumentReader {
+
+    public static Result generateDocuments(List<File> files,
+                                           String rootPath,
+                                           Path indexFile) throws IllegalStateException {
+        return generateDocuments(files, rootPath, indexFile, GenerationOptions.defaults());
+    }
+
+    /**
+     * @param indexFile where the index is kept between runs, typically next to the generated output
+     */
+    public static Result generateDocuments(List<File> files,
+                                           String rootPath,
+                                           Path indexFile,
+                                           GenerationOptions options) throws IllegalStateException {
+        return generateDocuments(files, rootPath, indexFile, options, null);
+    }
+
+    /**
+     * @param changedFiles the only files which can have been added or changed since the index was written, e.g. as
+     *                     reported by a build tool, or null if every file is hashed to find out. Files which are
+     *                     indexed but no longer in the list are removed either way.
+     */
+    public static Result generateDocuments(List<File> files,
+                                           String rootPath,
+                                           Path indexFile,
+                                           GenerationOptions options,
+                                           Collection<File> changedFiles) throws IllegalStateException {
+        DocumentIndex previousIndex = DocumentIndex.read(indexFile, rootPath, DocumentIndex.outputFlags(options), DocumentIndex.schemaHash(options));
+        ModuleIds moduleIds = new ModuleIds(rootPath, options.getModuleIdStrategy());
+        ParseCache parseCache = ParseCache.open(options, moduleIds);
+        Result result = DocumentReader.withExecution(options,
+                execution -> generateDocuments(files, changedFiles, rootPath, moduleIds, previousIndex, parseCache, execution, options));
+        parseCache.save(true);
+        try {
+            result.index.write(indexFile);
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't write index to " + indexFile, e);
+        }
+        return result;
+    }
+
+    private static Result generateDocuments(List<File> files,
+                                            Collection<File> changedFiles,
+                                            String rootPath,
+                                            ModuleIds moduleIds,
+                                            DocumentIndex previousIndex,
+                                            ParseCache parseCache,
+                                            ParallelExecution execution,
+                                            GenerationOptions options) {
+        // Each file is read once, so the hash kept in the index is always the hash of the content which was parsed
+        Map<File, byte[]> changedContent = new LinkedHashMap<>();
+        Map<File, byte[]> changedHashes = new HashMap<>();
+        Set<File> knownChangedFiles = changedFiles == null ? null : new HashSet<>(changedFiles);
+        Map<File, HashedFile> hashedFiles = execution.map(files, file -> hashFile(file, knownChangedFiles, moduleIds, previousIndex));
+        int hashedFileCount = 0;
+        for (Map.Entry<File, HashedFile> hashedFile : hashedFiles.entrySet()) {
+            hashedFileCount += hashedFile.getValue().hashed ? 1 : 0;
+            if (hashedFile.getValue().changedContent != null) {
+                changedContent.put(hashedFile.getKey(), hashedFile.getValue().changedContent);
+                changedHashes.put(hashedFile.getKey(), hashedFile.getValue().contentHash);
+            }
+        }
+
+        Map<File, Document> fileToDocument = new HashMap<>(execution.map(changedContent.keySet(),
+                file -> parseCache.parse(file, ByteBuffer.wrap(changedContent.get(file)), changedHashes.get(file))));
+
+        // Entries for the current set of files, carried over from the previous index where unchanged
+        Map<String, DocumentIndex.Entry> entries = new LinkedHashMap<>();
+        for (File file : files) {
+            DocumentIndex.Entry entry = fileToDocument.containsKey(file)
+                    ? DocumentIndex.createEntry(file, moduleIds.get(file), changedHashes.get(file), fileToDocument.get(file))
+                    : previousIndex.get(file.getPath());
+            entries.put(file.getPath(), entry);
+        }
+
+        Set<String> dirtyModules = new HashSet<>();
+        for (File file : fileToDocument.keySet()) {
+            dirtyModules.add(entries.get(file.getPath()).moduleId);
+        }
+        Set<String> deletedPaths = new HashSet<>();
+        for (DocumentIndex.Entry previousEntry : previousIndex.getEntries()) {
+            if (!entries.containsKey(previousEntry.path)) {
+                deletedPaths.add(previousEntry.path);
+                dirtyModules.add(previousEntry.moduleId);
+            }
+        }
+
+        // Every file which transitively imports from a changed or deleted file needs resolving again
+        Set<File> affectedFiles = new LinkedHashSet<>(fileToDocument.keySet());
+        for (String importerPath : DocumentIndex.getTransitiveImporters(entries.values(), dirtyModules)) {
+            affectedFiles.add(new File(importerPath));
+        }
+
+        // Resolving those files needs everything they transitively import from
+        List<String> affectedPaths = new ArrayList<>();
+        for (File file : affectedFiles) {
+            affectedPaths.add(file.getPath());
+        }
+        List<File> filesToParse = new ArrayList<>();
+        for (String requiredPath : DocumentIndex.getTransitiveImports(entries, affectedPaths)) {
+            File file = new File(requiredPath);
+            if (!fileToDocument.containsKey(file)) {
+                filesToParse.add(file);
+            }
+        }
+        fileToDocument.putAll(execution.map(filesToParse, parseCache::parseFile));
+
+        Map<File, Document> finalDocuments = DocumentReader.resolveDocuments(fileToDocument, affectedFiles, moduleIds, execution, options);
+
+        Map<String, Document> changedDocuments = new HashMap<>();
+        for (Map.Entry<File, Document> finalDocument : finalDocuments.entrySet()) {
+            changedDocuments.put(finalDocument.getKey().getPath(), finalDocument.getValue());
+        }
+        Set<String> removedDocuments = new HashSet<>();
+        for (DocumentIndex.Entry previousEntry : previousIndex.getEntries()) {
+            if (previousEntry.hasOperations && !changedDocuments.containsKey(previousEntry.path)
+                    && (deletedPaths.contains(previousEntry.path) || !entries.get(previousEntry.path).hasOperations)) {
+                removedDocuments.add(previousEntry.path);
+            }
+        }
+
+        return new Result(changedDocuments,
+                removedDocuments,
+                previousIndex.isEmpty(),
+                hashedFileCount,
+                fileToDocument.size(),
+                new DocumentIndex(rootPath, DocumentIndex.outputFlags(options), previousIndex.getSchemaHash(), entries));
+    }
+
+    /**
+     * @param knownChangedFiles every file which can have changed, or null if any can
+     * @return the hash of the file, with its content if it changed since the previous run
+     */
+    private static HashedFile hashFile(File file,
+                                       Set<File> knownChangedFiles,
+                                       ModuleIds moduleIds,
+                                       DocumentIndex previousIndex) {
+        DocumentIndex.Entry previousEntry = previousIndex.get(file.getPath());
+        // A different module id strategy changes what the file is imported as, so it counts as changed
+        boolean indexed = previousEntry != null && previousEntry.moduleId.equals(moduleIds.get(file));
+        if (indexed && knownChangedFiles != null && !knownChangedFiles.contains(file)) {
+            return new HashedFile(previousEntry.contentHash, null, false);
+        }
+
+        byte[] content;
+        try {
+            content = Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't read " + file.getPath(), e);
+        }
+        byte[] contentHash = DocumentIndex.hash(content);
+        boolean changed = !indexed || !Arrays.equals(previousEntry.contentHash, contentHash);
+        return new HashedFile(contentHash, changed ? content : null, true);
+    }
+
+    private static class HashedFile {
+        final byte[] contentHash;
+        // Null if the file hasn't changed, so unchanged content isn't held onto
+        final byte[] changedContent;
+        // False if the hash was taken from the index without reading the file
+        final boolean hashed;
+
+        HashedFile(byte[] contentHash,
+                   byte[] changedContent,
+                   boolean hashed) {
+            this.contentHash = contentHash;
+            this.changedContent = changedContent;
+            this.hashed = hashed;
+        }
+    }
+
+    public static class Result {
+
+        private final Map<String, Document> changedDocuments;
+        private final Set<String> removedDocuments;
+        private final boolean fullRebuild;
+        private final int hashedFileCount;
+        private final int parsedFileCount;
+        private final DocumentIndex index;
+
+        private Result(Map<String, Document> changedDocuments,
+                       Set<String> removedDocuments,
+                       boolean fullRebuild,
+                       int hashedFileCount,
+                       int parsedFileCount,
+                       DocumentIndex index) {
+            this.changedDocuments = changedDocuments;
+            this.removedDocuments = removedDocuments;
+            this.fullRebuild = fullRebuild;
+            this.hashedFileCount = hashedFileCount;
+            this.parsedFileCount = parsedFileCount;
+            this.index = index;
+        }
+
+        /**
+         * @return map of file path to final document for every document which was added or may have changed
+         */
+        public Map<String, Document> getChangedDocuments() {
+            return changedDocuments;
+        }
+
+        /**
+         * @return file paths whose documents were produced by the previous run but no longer exist
+         */
+        public Set<String> getRemovedDocuments() {
+            return removedDocuments;
+        }
+
+        /**
+         * @return true if there was no usable index and every file was processed
+         */
+        public boolean isFullRebuild() {
+            return fullRebuild;
+        }
+
+        /**
+         * @return number of files which had to be read and hashed to find out whether they changed
+         */
+        public int getHashedFileCount() {
+            return hashedFileCount;
+        }
+
+        /**
+         * @return number of files which had to be parsed for this run
+         */
+        public int getParsedFileCount() {
+            return parsedFileCount;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.zachary_moore.graphql;
+
+import java.util.Locale;
+
+/**
+ * Just enough JSON writing for the summaries and manifests this library writes.
+ */
+class Json {
+
+    static void appendString(StringBuilder json,
+                             String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,222 @@
+package com.zachary_moore.graphql;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects what a {@link ResolutionListener} is told into a summary which can be written out as JSON: time spent in
+ * each phase, parse times and sizes with the slowest files, closure hits and misses, how much each library's imports
+ * pull in and the largest closures.
+ *
+ * Durations are in milliseconds. Totals accumulate over every run the listener is used for.
+ */
+public class JsonSummaryListener implements ResolutionListener {
+
+    private static final int DEFAULT_LIMIT = 10;
+
+    private final int limit;
+
+    private final AtomicLongArray phaseNanos = new AtomicLongArray(Phase.values().length);
+
+    private final LongAdder fileCount = new LongAdder();
+    private final LongAdder fileBytes = new LongAdder();
+    private final LongAdder parseNanos = new LongAdder();
+    private final PriorityQueue<ParsedFile> slowestFiles =
+            new PriorityQueue<>(Comparator.comparingLong(parsedFile -> parsedFile.durationNanos));
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final Map<String, Library> libraries = new ConcurrentHashMap<>();
+    // Only misses are offered, once per fragment per run, and a later run's miss replaces the fragment's earlier
+    // entry, so each fragment appears at most once however many runs the listener is used for
+    private final PriorityQueue<Closure> largestClosures =
+            new PriorityQueue<>(Comparator.comparingInt(closure -> closure.size));
+
+    public JsonSummaryListener() {
+        this(DEFAULT_LIMIT);
+    }
+
+    /**
+     * @param limit how many of the slowest files and largest closures to keep
+     */
+    public JsonSummaryListener(int limit) {
+        this.limit = limit;
+    }
+
+    @Override
+    public void onPhase(Phase phase,
+                        long durationNanos) {
+        phaseNanos.addAndGet(phase.ordinal(), durationNanos);
+    }
+
+    @Override
+    public void onFileParsed(String path,
+                             int sizeBytes,
+                             long durationNanos) {
+        fileCount.increment();
+        fileBytes.add(sizeBytes);
+        parseNanos.add(durationNanos);
+        synchronized (slowestFiles) {
+            offer(slowestFiles, new ParsedFile(path, sizeBytes, durationNanos));
+        }
+    }
+
+    @Override
+    public void onClosureLookup(String importPath,
+                                String fragmentName,
+                                int closureSize,
+                                boolean hit) {
+        lookups.increment();
+        Library library = libraries.computeIfAbsent(importPath, key -> new Library());
+        library.lookups.increment();
+        library.definitions.add(closureSize);
+        if (hit) {
+            hits.increment();
+            return;
+        }
+        library.misses.increment();
+        synchronized (largestClosures) {
+            largestClosures.removeIf(closure -> closure.importPath.equals(importPath) && closure.fragmentName.equals(fragmentName));
+            offer(largestClosures, new Closure(importPath, fragmentName, closureSize));
+        }
+    }
+
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return lookups.sum() - hits.sum();
+    }
+
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\n  \"phases\": {");
+        Phase[] phases = Phase.values();
+        for (int i = 0; i < phases.length; i++) {
+            json.append(i == 0 ? "\n" : ",\n");
+            Json.appendString(json.append("    "), phases[i].name().toLowerCase(Locale.ROOT));
+            json.append(": ").append(millis(phaseNanos.get(i)));
+        }
+
+        json.append("\n  },\n  \"files\": {\n");
+        json.append("    \"count\": ").append(fileCount.sum()).append(",\n");
+        json.append("    \"bytes\": ").append(fileBytes.sum()).append(",\n");
+        json.append("    \"parseMillis\": ").append(millis(parseNanos.sum())).append(",\n");
+        json.append("    \"slowest\": [");
+        List<ParsedFile> files;
+        synchronized (slowestFiles) {
+            files = descending(slowestFiles);
+        }
+        for (int i = 0; i < files.size(); i++) {
+            ParsedFile file = files.get(i);
+            Json.appendString(json.append(i == 0 ? "\n" : ",\n").append("      {\"path\": "), file.path);
+            json.append(", \"bytes\": ").append(file.sizeBytes);
+            json.append(", \"millis\": ").append(millis(file.durationNanos)).append('}');
+        }
+
+        json.append(files.isEmpty() ? "]" : "\n    ]").append("\n  },\n  \"closures\": {\n");
+        json.append("    \"lookups\": ").append(getLookups()).append(",\n");
+        json.append("    \"hits\": ").append(getHits()).append(",\n");
+        json.append("    \"misses\": ").append(getMisses()).append(",\n");
+        json.append("    \"largest\": [");
+        List<Closure> closures;
+        synchronized (largestClosures) {
+            closures = descending(largestClosures);
+        }
+        for (int i = 0; i < closures.size(); i++) {
+            Closure closure = closures.get(i);
+            Json.appendString(json.append(i == 0 ? "\n" : ",\n").append("      {\"import\": "), closure.importPath);
+            Json.appendString(json.append(", \"fragment\": "), closure.fragmentName);
+            json.append(", \"size\": ").append(closure.size).append('}');
+        }
+
+        json.append(closures.isEmpty() ? "]" : "\n    ]").append("\n  },\n  \"libraries\": {");
+        Map<String, Library> sortedLibraries = new TreeMap<>(libraries);
+        boolean first = true;
+        for (Map.Entry<String, Library> entry : sortedLibraries.entrySet()) {
+            Library library = entry.getValue();
+            Json.appendString(json.append(first ? "\n" : ",\n").append("    "), entry.getKey());
+            json.append(": {\"lookups\": ").append(library.lookups.sum());
+            json.append(", \"misses\": ").append(library.misses.sum());
+            json.append(", \"definitions\": ").append(library.definitions.sum()).append('}');
+            first = false;
+        }
+        return json.append(first ? "}" : "\n  }").append("\n}\n").toString();
+    }
+
+    public void writeTo(Path path) throws IllegalStateException {
+        try {
+            Files.write(path, toJson().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't write summary to " + path, e);
+        }
+    }
+
+    private <T> void offer(PriorityQueue<T> queue,
+                           T element) {
+        queue.add(element);
+        if (queue.size() > limit) {
+            queue.poll();
+        }
+    }
+
+    private static <T> List<T> descending(PriorityQueue<T> queue) {
+        List<T> elements = new ArrayList<>(queue);
+        elements.sort(queue.comparator().reversed());
+        return elements;
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    private static class ParsedFile {
+        final String path;
+        final int sizeBytes;
+        final long durationNanos;
+
+        ParsedFile(String path,
+                   int sizeBytes,
+                   long durationNanos) {
+            this.path = path;
+            this.sizeBytes = sizeBytes;
+            this.durationNanos = durationNanos;
+        }
+    }
+
+    private static class Closure {
+        final String importPath;
+        final String fragmentName;
+        final int size;
+
+        Closure(String importPath,
+                String fragmentName,
+                int size) {
+            this.importPath = importPath;
+            this.fragmentName = fragmentName;
+            this.size = size;
+        }
+    }
+
+    private static class Library {
+        final LongAdder lookups = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder definitions = new LongAdder();
+    }
+}
@@ -0,0 +1,163 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.Document;
+import graphql.language.FragmentDefinition;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Parsed fragment libraries kept in memory across runs, set with {@link GenerationOptions.Builder#libraryCache}.
+ *
+ * A library is a file which exports fragments and has no operations. Each is kept with its export table, keyed by
+ * its module id and the SHA-256 of its content, so builds of many roots sharing libraries parse each of them once.
+ * The cache holds at most the given number of estimated AST bytes and evicts the least recently used libraries
+ * beyond that. One cache is meant to be shared by every run in the process and is safe for concurrent use. Runs
+ * missing the same library at once may both parse it, the first one stored is the one every run gets.
+ */
+public class LibraryCache {
+
+    // Retained size of a parsed graphql-java 16 document per byte of source, measured on generated libraries
+    static final int ESTIMATED_AST_BYTES_PER_SOURCE_BYTE = 84;
+
+    private final long maxWeight;
+    // Access ordered, guarded by this
+    private final LinkedHashMap<Key, Library> libraries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    // Export tables of the cached documents, node equality is identity so this is keyed by instance
+    private final Map<Document, Map<String, FragmentDefinition>> exports = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxWeightBytes most estimated AST bytes to keep, libraries larger than this on their own aren't kept
+     */
+    public LibraryCache(long maxWeightBytes) {
+        if (maxWeightBytes < 0) {
+            throw new IllegalArgumentException("Max weight can't be negative");
+        }
+        this.maxWeight = maxWeightBytes;
+    }
+
+    /**
+     * @param content of the library, only its size is used
+     * @param parse   parses the library on a miss
+     * @return the cached document of the library, or the newly parsed one
+     */
+    Document get(String moduleId,
+                 byte[] contentHash,
+                 ByteBuffer content,
+                 Supplier<Document> parse) {
+        Key key = new Key(moduleId, contentHash);
+        synchronized (this) {
+            Library library = libraries.get(key);
+            if (library != null) {
+                hits.increment();
+                return library.document;
+            }
+        }
+        misses.increment();
+
+        Document document = parse.get();
+        Library library = new Library(document, (long) content.remaining() * ESTIMATED_AST_BYTES_PER_SOURCE_BYTE);
+        if (library.weight > maxWeight) {
+            return document;
+        }
+        Map<String, FragmentDefinition> exportedFragments = Collections.unmodifiableMap(ExportParser.getExportedFragments(document));
+        synchronized (this) {
+            Library existing = libraries.putIfAbsent(key, library);
+            if (existing != null) {
+                return existing.document;
+            }
+            exports.put(document, exportedFragments);
+            weight += library.weight;
+            Iterator<Library> leastRecentlyUsed = libraries.values().iterator();
+            while (weight > maxWeight) {
+                Library evicted = leastRecentlyUsed.next();
+                leastRecentlyUsed.remove();
+                exports.remove(evicted.document);
+                weight -= evicted.weight;
+                evictions.increment();
+            }
+        }
+        return document;
+    }
+
+    /**
+     * @return the export table of the document, cached if it's the document of a cached library
+     */
+    Map<String, FragmentDefinition> getExportedFragments(Document document) {
+        Map<String, FragmentDefinition> exportedFragments = exports.get(document);
+        return exportedFragments == null ? ExportParser.getExportedFragments(document) : exportedFragments;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return number of libraries held
+     */
+    public synchronized int getSize() {
+        return libraries.size();
+    }
+
+    /**
+     * @return estimated AST bytes of the libraries held
+     */
+    public synchronized long getWeightBytes() {
+        return weight;
+    }
+
+    private static class Key {
+        final String moduleId;
+        final ByteBuffer contentHash;
+
+        Key(String moduleId,
+            byte[] contentHash) {
+            this.moduleId = moduleId;
+            this.contentHash = ByteBuffer.wrap(contentHash);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return moduleId.equals(key.moduleId) && contentHash.equals(key.contentHash);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * moduleId.hashCode() + contentHash.hashCode();
+        }
+    }
+
+    private static class Library {
+        final Document document;
+        final long weight;
+
+        Library(Document document,
+                long weight) {
+            this.document = document;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.zachary_moore.graphql;
+
+import java.nio.file.Path;
+
+/**
+ * Maps a file's path under the root to the module id other files import it by in {@code @import(from:)}, set with
+ * {@link GenerationOptions.Builder#moduleIds(ModuleIdStrategy)}.
+ *
+ * The default, {@link #dotted()}, gives {@code package1.nested.QueryA} for {@code package1/nested/QueryA.graphql}.
+ */
+@FunctionalInterface
+public interface ModuleIdStrategy {
+
+    /**
+     * @param relativePath path of the file relative to the root, with at least one name
+     */
+    String getModuleId(Path relativePath);
+
+    static ModuleIdStrategy dotted() {
+        return separatedBy(".");
+    }
+
+    /**
+     * @return strategy joining the directories and the file name, without a {@code .graphql} extension, with the
+     * separator
+     */
+    static ModuleIdStrategy separatedBy(String separator) {
+        return relativePath -> ModuleIds.join(relativePath, separator);
+    }
+
+    /**
+     * @param directory directory under the root, e.g. {@code shared/fragments}
+     * @param alias     name standing in for the directory, e.g. {@code common} so that
+     *                  {@code shared/fragments/user.graphql} is imported as {@code common.user} with {@link #dotted()}
+     * @return strategy mapping files under the directory as if they were under the alias instead
+     */
+    default ModuleIdStrategy withAlias(String directory,
+                                       String alias) {
+        return relativePath -> {
+            Path prefix = relativePath.getFileSystem().getPath(directory).normalize();
+            if (relativePath.startsWith(prefix) && !relativePath.equals(prefix)) {
+                return getModuleId(relativePath.getFileSystem().getPath(alias).resolve(prefix.relativize(relativePath)));
+            }
+            return getModuleId(relativePath);
+        };
+    }
+}
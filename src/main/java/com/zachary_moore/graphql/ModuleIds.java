@@ -0,0 +1,63 @@
+package com.zachary_moore.graphql;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Module ids of the files of a run, each computed once with the run's {@link ModuleIdStrategy}.
+ *
+ * Paths are compared as paths rather than strings, so the root may contain any characters, be relative or end in a
+ * separator, and Windows paths work. Safe for concurrent use.
+ */
+class ModuleIds {
+
+    private static final String GRAPHQL_FILE_EXTENSION = ".graphql";
+
+    private final Path root;
+    private final ModuleIdStrategy strategy;
+    private final Map<File, String> moduleIds = new ConcurrentHashMap<>();
+
+    ModuleIds(String rootPath,
+              ModuleIdStrategy strategy) {
+        this.root = Paths.get(rootPath).toAbsolutePath().normalize();
+        this.strategy = strategy;
+    }
+
+    String get(File file) throws IllegalStateException {
+        String moduleId = moduleIds.get(file);
+        if (moduleId == null) {
+            moduleId = compute(file);
+            moduleIds.put(file, moduleId);
+        }
+        return moduleId;
+    }
+
+    private String compute(File file) {
+        Path path = file.toPath().toAbsolutePath().normalize();
+        if (!path.startsWith(root) || path.equals(root)) {
+            throw new IllegalStateException("Could not generate import from file " + file.getPath() + ", it is not under " + root);
+        }
+        return strategy.getModuleId(root.relativize(path));
+    }
+
+    static String join(Path relativePath,
+                       String separator) {
+        int nameCount = relativePath.getNameCount();
+        StringBuilder moduleId = new StringBuilder();
+        for (int i = 0; i < nameCount; i++) {
+            if (i != 0) {
+                moduleId.append(separator);
+            }
+            String name = relativePath.getName(i).toString();
+            if (i == nameCount - 1 && name.endsWith(GRAPHQL_FILE_EXTENSION) && name.length() > GRAPHQL_FILE_EXTENSION.length()) {
+                moduleId.append(name, 0, name.length() - GRAPHQL_FILE_EXTENSION.length());
+            } else {
+                moduleId.append(name);
+            }
+        }
+        return moduleId.toString();
+    }
+}
@@ -0,0 +1,65 @@
+package com.zachary_moore.graphql;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Maps a collection of inputs either on the calling thread or across an executor.
+ * Results keep the iteration order of the inputs and failures are reported for the first failing input in that order.
+ */
+class ParallelExecution {
+
+    private final Executor executor;
+
+    ParallelExecution(Executor executor) {
+        this.executor = executor;
+    }
+
+    static ParallelExecution serial() {
+        return new ParallelExecution(null);
+    }
+
+    boolean isParallel() {
+        return executor != null;
+    }
+
+    <T, R> Map<T, R> map(Collection<T> inputs, Function<T, R> mapper) {
+        Map<T, R> results = new LinkedHashMap<>();
+        if (executor == null) {
+            for (T input : inputs) {
+                results.put(input, mapper.apply(input));
+            }
+            return results;
+        }
+
+        List<CompletableFuture<R>> futures = new ArrayList<>(inputs.size());
+        for (T input : inputs) {
+            futures.add(CompletableFuture.supplyAsync(() -> mapper.apply(input), executor));
+        }
+
+        int index = 0;
+        for (T input : inputs) {
+            try {
+                results.put(input, futures.get(index++).join());
+            } catch (CompletionException e) {
+                // Don't start work we are going to throw away
+                futures.forEach(future -> future.cancel(false));
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw e;
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,294 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.Document;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * Cache of parsed documents between runs, keyed by the SHA-256 of the file content.
+ *
+ * Documents are kept in {@link DocumentCodec} form in a single file in the cache directory which is loaded when the
+ * cache is opened, so an unchanged file is decoded instead of parsed. Entries carry a checksum and an entry which is
+ * corrupt, or a cache file which is unreadable or written by another version, is ignored and the file parsed again.
+ * Failing to write the cache never fails a run, it only costs parsing next time.
+ *
+ * Opened once per run and safe for concurrent use during it. A cache opened without a directory just parses. With a
+ * {@link LibraryCache} libraries are looked up there first and only parsed or loaded on a miss.
+ */
+class ParseCache {
+
+    private static final int MAGIC = 0x47514143;
+    private static final int VERSION = 1;
+    private static final int HASH_LENGTH = 32;
+    private static final String CACHE_FILE_NAME = "documents.bin";
+
+    private final Path cacheFile;
+    // Map of content hash to encoded document as of the previous run
+    private final Map<ByteBuffer, ByteBuffer> previousEntries;
+    // Map of content hash to encoded document for every file seen by this run
+    private final Map<ByteBuffer, ByteBuffer> entries = new ConcurrentHashMap<>();
+    private final AtomicInteger parseCount = new AtomicInteger();
+    private final ResolutionListener listener;
+    private final LibraryCache libraryCache;
+    private final ModuleIds moduleIds;
+
+    private ParseCache(Path cacheFile,
+                       Map<ByteBuffer, ByteBuffer> previousEntries,
+                       ResolutionListener listener,
+                       LibraryCache libraryCache,
+                       ModuleIds moduleIds) {
+        this.cacheFile = cacheFile;
+        this.previousEntries = previousEntries;
+        this.listener = listener;
+        this.libraryCache = libraryCache;
+        this.moduleIds = moduleIds;
+    }
+
+    static ParseCache open(Path directory) {
+        return open(directory, null, null, null);
+    }
+
+    /**
+     * Open the cache of the options, looking libraries up in their library cache by the module ids of the run.
+     */
+    static ParseCache open(GenerationOptions options,
+                           ModuleIds moduleIds) {
+        return open(options.getParseCacheDirectory(), options.getListener(), options.getLibraryCache(), moduleIds);
+    }
+
+    /**
+     * @param directory    cache directory, or null to always parse
+     * @param listener     told about every file parsed or loaded, may be null
+     * @param libraryCache looked up before the cache for libraries, may be null
+     */
+    private static ParseCache open(Path directory,
+                                   ResolutionListener listener,
+                                   LibraryCache libraryCache,
+                                   ModuleIds moduleIds) {
+        if (directory == null) {
+            return new ParseCache(null, Collections.emptyMap(), listener, libraryCache, moduleIds);
+        }
+        Path cacheFile = directory.resolve(CACHE_FILE_NAME);
+        return new ParseCache(cacheFile, read(cacheFile), listener, libraryCache, moduleIds);
+    }
+
+    Document parseFile(File file) {
+        return parse(file, PreScan.read(file));
+    }
+
+    /**
+     * @param library whether the file is a library, which the caller already knows
+     */
+    Document parseFile(File file,
+                       boolean library) {
+        ByteBuffer content = PreScan.read(file);
+        return parse(file, content, hash(content), library);
+    }
+
+    Document parse(File file,
+                   ByteBuffer content) {
+        return parse(file, content, (PreScan) null);
+    }
+
+    /**
+     * @param preScan of the content if the caller has scanned it, or null to scan it here if that's needed
+     */
+    Document parse(File file,
+                   ByteBuffer content,
+                   PreScan preScan) {
+        return parse(file, content, hash(content), isLibrary(content, preScan));
+    }
+
+    /**
+     * @param contentHash SHA-256 of the content as given by {@link DocumentIndex#hash(ByteBuffer)}
+     */
+    Document parse(File file,
+                   ByteBuffer content,
+                   byte[] contentHash) {
+        return parse(file, content, contentHash, isLibrary(content, null));
+    }
+
+    private Document parse(File file,
+                           ByteBuffer content,
+                           byte[] contentHash,
+                           boolean library) {
+        if (listener == null) {
+            return lookUp(file, content, contentHash, library);
+        }
+        long start = System.nanoTime();
+        Document document = lookUp(file, content, contentHash, library);
+        listener.onFileParsed(file.getPath(), content.remaining(), System.nanoTime() - start);
+        return document;
+    }
+
+    private byte[] hash(ByteBuffer content) {
+        return cacheFile == null && libraryCache == null ? null : DocumentIndex.hash(content);
+    }
+
+    /**
+     * A library exports fragments and has no operations. Only scanned when there's a library cache to look it up in.
+     */
+    private boolean isLibrary(ByteBuffer content,
+                              PreScan preScan) {
+        if (libraryCache == null) {
+            return false;
+        }
+        if (preScan == null) {
+            preScan = PreScan.scan(content);
+        }
+        return preScan.hasExports() && !preScan.mayHaveOperations();
+    }
+
+    private Document lookUp(File file,
+                            ByteBuffer content,
+                            byte[] contentHash,
+                            boolean library) {
+        if (library && libraryCache != null) {
+            return libraryCache.get(moduleIds.get(file), contentHash, content,
+                    () -> parseOrLoad(file, content, contentHash));
+        }
+        return parseOrLoad(file, content, contentHash);
+    }
+
+    private Document parseOrLoad(File file,
+                                 ByteBuffer content,
+                                 byte[] contentHash) {
+        if (cacheFile == null) {
+            parseCount.incrementAndGet();
+            return DocumentReader.parse(file, StandardCharsets.UTF_8.decode(content.duplicate()).toString());
+        }
+
+        ByteBuffer key = ByteBuffer.wrap(contentHash);
+        ByteBuffer encoded = entries.get(key);
+        if (encoded == null) {
+            encoded = previousEntries.get(key);
+        }
+        if (encoded != null) {
+            try {
+                Document document = DocumentCodec.decode(encoded.duplicate());
+                entries.put(key, encoded);
+                return document;
+            } catch (IllegalArgumentException e) {
+                // Corrupt, parse it again below
+            }
+        }
+
+        parseCount.incrementAndGet();
+        Document document = DocumentReader.parse(file, StandardCharsets.UTF_8.decode(content.duplicate()).toString());
+        try {
+            entries.put(key, ByteBuffer.wrap(DocumentCodec.encode(document)));
+        } catch (IllegalArgumentException e) {
+            // Not an executable document so there's nothing to gain from caching it
+        }
+        return document;
+    }
+
+    /**
+     * @return number of files which had to be parsed rather than loaded from the cache
+     */
+    int getParseCount() {
+        return parseCount.get();
+    }
+
+    /**
+     * Write the cache for the next run if this run added to it.
+     *
+     * @param keepUnused keep entries this run didn't use, for runs which only look at some of the files. Otherwise
+     *                   only the entries of this run are kept so the cache doesn't grow with files which have changed
+     */
+    void save(boolean keepUnused) {
+        if (cacheFile == null) {
+            return;
+        }
+        Map<ByteBuffer, ByteBuffer> entriesToWrite = new LinkedHashMap<>();
+        if (keepUnused) {
+            entriesToWrite.putAll(previousEntries);
+        }
+        entriesToWrite.putAll(entries);
+        if (entriesToWrite.size() == previousEntries.size() && previousEntries.entrySet().containsAll(entriesToWrite.entrySet())) {
+            return;
+        }
+
+        Path temporaryFile = null;
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            temporaryFile = Files.createTempFile(cacheFile.getParent(), CACHE_FILE_NAME, ".tmp");
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeInt(entriesToWrite.size());
+                for (Map.Entry<ByteBuffer, ByteBuffer> entry : entriesToWrite.entrySet()) {
+                    ByteBuffer encoded = entry.getValue();
+                    output.write(entry.getKey().array());
+                    output.writeInt(encoded.remaining());
+                    output.writeLong(checksum(encoded));
+                    output.write(encoded.array(), encoded.arrayOffset() + encoded.position(), encoded.remaining());
+                }
+            }
+            Files.move(temporaryFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (temporaryFile != null) {
+                temporaryFile.toFile().delete();
+            }
+        }
+    }
+
+    private static Map<ByteBuffer, ByteBuffer> read(Path cacheFile) {
+        if (!Files.isRegularFile(cacheFile)) {
+            return Collections.emptyMap();
+        }
+        try {
+            // Read onto the heap rather than mapping so the file can be replaced while this run holds on to it
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(cacheFile));
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return Collections.emptyMap();
+            }
+            int entryCount = buffer.getInt();
+            Map<ByteBuffer, ByteBuffer> entries = new HashMap<>();
+            for (int i = 0; i < entryCount; i++) {
+                byte[] contentHash = new byte[HASH_LENGTH];
+                buffer.get(contentHash);
+                int length = buffer.getInt();
+                long checksum = buffer.getLong();
+                if (length < 0 || length > buffer.remaining()) {
+                    throw new BufferUnderflowException();
+                }
+                ByteBuffer encoded = buffer.slice();
+                encoded.limit(length);
+                buffer.position(buffer.position() + length);
+                // A damaged entry only costs parsing that file again
+                if (checksum(encoded) == checksum) {
+                    entries.put(ByteBuffer.wrap(contentHash), encoded);
+                }
+            }
+            return entries;
+        } catch (IOException | BufferUnderflowException e) {
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * @param encoded heap buffer, left untouched
+     */
+    private static long checksum(ByteBuffer encoded) {
+        CRC32 crc = new CRC32();
+        crc.update(encoded.array(), encoded.arrayOffset() + encoded.position(), encoded.remaining());
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,169 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.AstPrinter;
+import graphql.language.Definition;
+import graphql.language.Document;
+import graphql.language.FragmentDefinition;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Manifest of persisted queries for final documents, each printed compactly as clients send it along with the
+ * SHA-256 of that print.
+ *
+ * Documents importing the same fragment share its definition, so a fragment in more than one document is printed once
+ * and its print reused. Bodies are exactly {@link AstPrinter#printAstCompact} of each document and entries are sorted
+ * by path, so the manifest only changes when a document does.
+ */
+public class PersistedQueryManifest {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final List<Entry> entries;
+
+    private PersistedQueryManifest(List<Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * @param documents final documents by file path, as returned by {@link DocumentReader#generateDocuments}
+     * @param rootPath  root the file paths are under, manifest paths are relative to it
+     */
+    public static PersistedQueryManifest create(Map<String, Document> documents,
+                                                String rootPath) throws IllegalStateException {
+        return create(documents, rootPath, GenerationOptions.defaults());
+    }
+
+    public static PersistedQueryManifest create(Map<String, Document> documents,
+                                                String rootPath,
+                                                GenerationOptions options) throws IllegalStateException {
+        // Fragments which appear in more than one document, by identity as that's how imports are shared
+        Map<FragmentDefinition, Integer> fragmentUses = new IdentityHashMap<>();
+        for (Document document : documents.values()) {
+            for (Definition definition : document.getDefinitions()) {
+                if (definition instanceof FragmentDefinition) {
+                    fragmentUses.merge((FragmentDefinition) definition, 1, Integer::sum);
+                }
+            }
+        }
+        fragmentUses.values().removeIf(uses -> uses == 1);
+        // Node equality is identity so this is keyed the same way
+        Map<FragmentDefinition, String> sharedPrints = new ConcurrentHashMap<>(fragmentUses.size());
+
+        Path root = Paths.get(rootPath).toAbsolutePath().normalize();
+        List<Entry> entries = new ArrayList<>(DocumentReader.withExecution(options, execution -> execution.map(
+                documents.keySet(),
+                path -> createEntry(root, path, documents.get(path), fragmentUses, sharedPrints))).values());
+        entries.sort(Comparator.comparing(Entry::getPath));
+        return new PersistedQueryManifest(Collections.unmodifiableList(entries));
+    }
+
+    /**
+     * @return an entry per document, sorted by path
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\n  \"operations\": [");
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            Json.appendString(json.append(i == 0 ? "\n" : ",\n").append("    {\"path\": "), entry.path);
+            Json.appendString(json.append(", \"hash\": "), entry.hash);
+            Json.appendString(json.append(", \"body\": "), entry.body);
+            json.append('}');
+        }
+        return json.append(entries.isEmpty() ? "]" : "\n  ]").append("\n}\n").toString();
+    }
+
+    public void writeTo(Path path) throws IllegalStateException {
+        try {
+            Files.write(path, toJson().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't write manifest to " + path, e);
+        }
+    }
+
+    private static Entry createEntry(Path root,
+                                     String path,
+                                     Document document,
+                                     Map<FragmentDefinition, Integer> fragmentUses,
+                                     Map<FragmentDefinition, String> sharedPrints) {
+        Path source = Paths.get(path).toAbsolutePath().normalize();
+        if (!source.startsWith(root)) {
+            throw new IllegalStateException(path + " is not under " + root);
+        }
+
+        // printAstCompact separates definitions with a space, so this is the same as printing the whole document
+        StringBuilder body = new StringBuilder();
+        for (Definition definition : document.getDefinitions()) {
+            if (body.length() > 0) {
+                body.append(' ');
+            }
+            if (definition instanceof FragmentDefinition && fragmentUses.containsKey(definition)) {
+                body.append(sharedPrints.computeIfAbsent((FragmentDefinition) definition, AstPrinter::printAstCompact));
+            } else {
+                body.append(AstPrinter.printAstCompact(definition));
+            }
+        }
+        String printed = body.toString();
+        return new Entry(
+                root.relativize(source).toString().replace(source.getFileSystem().getSeparator(), "/"),
+                toHex(DocumentIndex.hash(printed.getBytes(StandardCharsets.UTF_8))),
+                printed);
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    public static class Entry {
+
+        private final String path;
+        private final String hash;
+        private final String body;
+
+        private Entry(String path,
+                      String hash,
+                      String body) {
+            this.path = path;
+            this.hash = hash;
+            this.body = body;
+        }
+
+        /**
+         * @return path of the source file relative to the root, separated by forward slashes
+         */
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * @return lower case hex SHA-256 of the UTF-8 body
+         */
+        public String getHash() {
+            return hash;
+        }
+
+        public String getBody() {
+            return body;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.zachary_moore.graphql;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Lexical scan of a file's bytes, much cheaper than parsing, telling whether it can import, export or define operations.
+ *
+ * Strings, block strings and comments are skipped and ignored characters between {@code @} and a directive name are
+ * allowed, so only real {@code @import} and {@code @export} directives count. Whether a file has operations is
+ * answered conservatively: anything the scan can't rule out counts as an operation, so the file is parsed.
+ */
+class PreScan {
+
+    // Files at least this big are memory mapped rather than read onto the heap
+    static final int MAPPED_FILE_THRESHOLD = 1 << 20;
+
+    private static final String IMPORT_DIRECTIVE_NAME = "import";
+    private static final String EXPORT_DIRECTIVE_NAME = "export";
+
+    enum Kind {
+        // Has at least one @import, so needs resolving
+        IMPORTING,
+        // Exports fragments but imports nothing
+        EXPORT_ONLY,
+        // Neither imports nor exports, passes through as parsed
+        PLAIN
+    }
+
+    private enum Definition {
+        NONE,
+        FRAGMENT,
+        // Type system definitions which can have a body, until it opens they may end without one like those below
+        TYPE_SYSTEM,
+        // Type system definitions which never have a body, so a selection set after one starts an operation
+        TYPE_SYSTEM_WITHOUT_BODY
+    }
+
+    private final boolean hasImports;
+    private final boolean hasExports;
+    private final boolean mayHaveOperations;
+
+    private PreScan(boolean hasImports,
+                    boolean hasExports,
+                    boolean mayHaveOperations) {
+        this.hasImports = hasImports;
+        this.hasExports = hasExports;
+        this.mayHaveOperations = mayHaveOperations;
+    }
+
+    boolean hasImports() {
+        return hasImports;
+    }
+
+    boolean hasExports() {
+        return hasExports;
+    }
+
+    /**
+     * @return false only if the file certainly has no operations
+     */
+    boolean mayHaveOperations() {
+        return mayHaveOperations;
+    }
+
+    /**
+     * @return true if the file has no operations and exports nothing, so can't contribute to any final document
+     */
+    boolean isInert() {
+        return !hasExports && !mayHaveOperations;
+    }
+
+    Kind getKind() {
+        if (hasImports) {
+            return Kind.IMPORTING;
+        }
+        return hasExports ? Kind.EXPORT_ONLY : Kind.PLAIN;
+    }
+
+    static ByteBuffer read(File file) throws IllegalStateException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() >= MAPPED_FILE_THRESHOLD) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't read " + file.getPath(), e);
+        }
+        try {
+            return ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't read " + file.getPath(), e);
+        }
+    }
+
+    static PreScan scan(ByteBuffer content) {
+        boolean hasImports = false;
+        boolean hasExports = false;
+        boolean mayHaveOperations = false;
+        // Nesting of braces, parentheses and brackets, definitions start at 0
+        int depth = 0;
+        boolean atDefinitionStart = true;
+        boolean afterExtend = false;
+        Definition definition = Definition.NONE;
+        // Within a definition without a body, whether the next name is the one being defined or a union member
+        boolean expectingDefinitionName = false;
+        byte previousSymbol = 0;
+
+        int end = content.limit();
+        int i = content.position();
+        while (i < end && !(hasImports && hasExports && mayHaveOperations)) {
+            byte b = content.get(i);
+            if (b == '#') {
+                i = skipComment(content, i, end);
+            } else if (b == '"') {
+                i = skipString(content, i, end);
+            } else if (b == '@') {
+                int nameStart = skipIgnored(content, i + 1, end);
+                i = skipName(content, nameStart, end);
+                hasImports |= nameEquals(content, nameStart, i, IMPORT_DIRECTIVE_NAME);
+                hasExports |= nameEquals(content, nameStart, i, EXPORT_DIRECTIVE_NAME);
+            } else if (isNameStart(b)) {
+                int nameStart = i;
+                i = skipName(content, nameStart, end);
+                if (depth != 0) {
+                    continue;
+                }
+                // Definitions without a body have no closing brace, so the next one starts with its keyword. At depth 0
+                // the body of a type system definition hasn't opened yet, as closing it ends the definition.
+                boolean startsDefinition = atDefinitionStart
+                        || ((definition == Definition.TYPE_SYSTEM_WITHOUT_BODY || definition == Definition.TYPE_SYSTEM)
+                        && !expectingDefinitionName
+                        && previousSymbol != '='
+                        && previousSymbol != '|'
+                        && previousSymbol != '&'
+                        && isDefinitionKeyword(content, nameStart, i));
+                previousSymbol = 0;
+                expectingDefinitionName = false;
+                if (!startsDefinition) {
+                    continue;
+                }
+                if (nameEquals(content, nameStart, i, "extend") && !afterExtend) {
+                    afterExtend = true;
+                    atDefinitionStart = true;
+                    continue;
+                }
+                afterExtend = false;
+                atDefinitionStart = false;
+                definition = getDefinition(content, nameStart, i);
+                // Schema definitions are the only ones without a name
+                expectingDefinitionName = !nameEquals(content, nameStart, i, "schema");
+                mayHaveOperations |= definition == Definition.NONE;
+            } else if (depth == 0 && (b == '=' || b == '|' || b == '&')) {
+                previousSymbol = b;
+                i++;
+            } else if (b == '{' || b == '(' || b == '[') {
+                if (depth == 0 && b == '{') {
+                    mayHaveOperations |= atDefinitionStart || definition == Definition.TYPE_SYSTEM_WITHOUT_BODY;
+                    atDefinitionStart = false;
+                }
+                depth++;
+                i++;
+            } else if (b == '}' || b == ')' || b == ']') {
+                depth--;
+                if (depth < 0) {
+                    // Unbalanced, let the parser make sense of it
+                    mayHaveOperations = true;
+                    depth = 0;
+                }
+                if (depth == 0 && b == '}') {
+                    atDefinitionStart = true;
+                    definition = Definition.NONE;
+                }
+                i++;
+            } else {
+                i++;
+            }
+        }
+        return new PreScan(hasImports, hasExports, mayHaveOperations);
+    }
+
+    private static boolean isDefinitionKeyword(ByteBuffer content,
+                                               int start,
+                                               int end) {
+        return getDefinition(content, start, end) != Definition.NONE
+                || nameEquals(content, start, end, "extend")
+                || nameEquals(content, start, end, "query")
+                || nameEquals(content, start, end, "mutation")
+                || nameEquals(content, start, end, "subscription");
+    }
+
+    private static Definition getDefinition(ByteBuffer content,
+                                            int start,
+                                            int end) {
+        if (nameEquals(content, start, end, "fragment")) {
+            return Definition.FRAGMENT;
+        }
+        if (nameEquals(content, start, end, "scalar")
+                || nameEquals(content, start, end, "union")
+                || nameEquals(content, start, end, "directive")) {
+            return Definition.TYPE_SYSTEM_WITHOUT_BODY;
+        }
+        if (nameEquals(content, start, end, "type")
+                || nameEquals(content, start, end, "interface")
+                || nameEquals(content, start, end, "enum")
+                || nameEquals(content, start, end, "input")
+                || nameEquals(content, start, end, "schema")) {
+            return Definition.TYPE_SYSTEM;
+        }
+        // An operation, or something we don't recognise
+        return Definition.NONE;
+    }
+
+    private static int skipComment(ByteBuffer content,
+                                   int i,
+                                   int end) {
+        while (i < end && content.get(i) != '\n' && content.get(i) != '\r') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipString(ByteBuffer content,
+                                  int i,
+                                  int end) {
+        if (i + 2 < end && content.get(i + 1) == '"' && content.get(i + 2) == '"') {
+            // Block string, only \""" escapes anything
+            i += 3;
+            while (i < end) {
+                if (content.get(i) == '\\' && isTripleQuote(content, i + 1, end)) {
+                    i += 4;
+                } else if (isTripleQuote(content, i, end)) {
+                    return i + 3;
+                } else {
+                    i++;
+                }
+            }
+            return i;
+        }
+
+        i++;
+        while (i < end) {
+            byte b = content.get(i);
+            if (b == '\\') {
+                i += 2;
+            } else if (b == '"') {
+                return i + 1;
+            } else if (b == '\n' || b == '\r') {
+                // Unterminated, the parser will report it
+                return i;
+            } else {
+                i++;
+            }
+        }
+        return i;
+    }
+
+    private static boolean isTripleQuote(ByteBuffer content,
+                                         int i,
+                                         int end) {
+        return i + 2 < end && content.get(i) == '"' && content.get(i + 1) == '"' && content.get(i + 2) == '"';
+    }
+
+    /**
+     * Skip whitespace, commas, byte order marks and comments, which may all appear between tokens.
+     */
+    private static int skipIgnored(ByteBuffer content,
+                                   int i,
+                                   int end) {
+        while (i < end) {
+            byte b = content.get(i);
+            if (b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == ',') {
+                i++;
+            } else if (b == '#') {
+                i = skipComment(content, i, end);
+            } else if (b == (byte) 0xEF && i + 2 < end && content.get(i + 1) == (byte) 0xBB && content.get(i + 2) == (byte) 0xBF) {
+                i += 3;
+            } else {
+                return i;
+            }
+        }
+        return i;
+    }
+
+    private static int skipName(ByteBuffer content,
+                                int i,
+                                int end) {
+        if (i < end && isNameStart(content.get(i))) {
+            i++;
+            while (i < end && (isNameStart(content.get(i)) || (content.get(i) >= '0' && content.get(i) <= '9'))) {
+                i++;
+            }
+        }
+        return i;
+    }
+
+    private static boolean isNameStart(byte b) {
+        return b == '_' || (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z');
+    }
+
+    private static boolean nameEquals(ByteBuffer content,
+                                      int start,
+                                      int end,
+                                      String name) {
+        if (end - start != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (content.get(start + i) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,52 @@
+package com.zachary_moore.graphql;
+
+/**
+ * Instrumentation hooks for a run, set with {@link GenerationOptions.Builder#listener(ResolutionListener)}.
+ *
+ * Every method does nothing by default so implementations only override what they need. Methods may be called from
+ * the worker threads of a parallel run so implementations must be thread safe. When no listener is set no
+ * timings are taken at all.
+ */
+public interface ResolutionListener {
+
+    enum Phase {
+        // Reading file contents and pre-scanning them
+        READ,
+        // Parsing, or loading from the parse cache
+        PARSE,
+        // Finding the exported fragments of every file
+        EXPORT_EXTRACTION,
+        // Building the fragment graph and resolving the imports of every file
+        RESOLVE,
+        // Dropping files without operations from the result
+        FILTER
+    }
+
+    /**
+     * Wall clock time of a phase of {@link DocumentReader#generateDocuments}.
+     */
+    default void onPhase(Phase phase,
+                         long durationNanos) {
+    }
+
+    /**
+     * @param sizeBytes     size of the file content
+     * @param durationNanos time to parse it, or to load it when it came from the parse cache
+     */
+    default void onFileParsed(String path,
+                              int sizeBytes,
+                              long durationNanos) {
+    }
+
+    /**
+     * An imported fragment was resolved to its closure. The first lookup of a fragment in a run is a miss and later
+     * lookups of it are hits.
+     *
+     * @param closureSize number of fragment definitions the import brings in, including the fragment itself
+     */
+    default void onClosureLookup(String importPath,
+                                 String fragmentName,
+                                 int closureSize,
+                                 boolean hit) {
+    }
+}
@@ -0,0 +1,45 @@
+package com.zachary_moore.graphql;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interns strings such as import paths and fragment names to dense int ids, so hot lookups can key on ints.
+ *
+ * Not thread safe while interning, safe to read from any thread once built.
+ */
+class SymbolTable {
+
+    static final int MISSING = -1;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> symbols = new ArrayList<>();
+
+    int intern(String symbol) {
+        Integer id = ids.get(symbol);
+        if (id == null) {
+            id = symbols.size();
+            ids.put(symbol, id);
+            symbols.add(symbol);
+        }
+        return id;
+    }
+
+    /**
+     * @return the id of an interned symbol or {@link #MISSING}
+     */
+    int lookup(String symbol) {
+        Integer id = ids.get(symbol);
+        return id == null ? MISSING : id;
+    }
+
+    String get(int id) {
+        return symbols.get(id);
+    }
+
+    int size() {
+        return symbols.size();
+    }
+}
@@ -0,0 +1,171 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.AstPrinter;
+import graphql.language.Document;
+import graphql.language.FragmentDefinition;
+import graphql.parser.Parser;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class DocumentOptimizerShould {
+
+    private static final String USER_FRAGMENT =
+            "fragment author on User @export {\n" +
+                    "    first_name\n" +
+                    "}\n" +
+                    "fragment oldAuthor on User @export {\n" +
+                    "    last_name\n" +
+                    "}";
+
+    private static final String TWEET_FRAGMENT =
+            "fragment fullTweet on Tweet @export {\n" +
+                    "    body\n" +
+                    "    Author {\n" +
+                    "        ...author @import(from: \"userFragment\")\n" +
+                    "        ...oldAuthor @import(from: \"userFragment\") @include(if: false)\n" +
+                    "    }\n" +
+                    "}";
+
+    private static final String QUERY =
+            "query A($withAuthor: Boolean!) {\n" +
+                    "    Tweet(id: 1) {\n" +
+                    "        ...fullTweet @import(from: \"tweetFragment\")\n" +
+                    "        ...localTweet @skip(if: true)\n" +
+                    "    }\n" +
+                    "    User(id: 1) {\n" +
+                    "        ...author @import(from: \"userFragment\") @include(if: $withAuthor)\n" +
+                    "    }\n" +
+                    "}\n" +
+                    "fragment localTweet on Tweet {\n" +
+                    "    id\n" +
+                    "}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void dropFragmentsOnlyReachedThroughExcludedSelections() throws Exception {
+        writeFiles();
+        GenerationOptions options = GenerationOptions.newOptions().treeShake(true).build();
+        Document document = generate(options);
+
+        assertEquals(print(
+                "query A($withAuthor: Boolean!) {\n" +
+                        "  Tweet(id: 1) {\n" +
+                        "    ...fullTweet @import(from: \"tweetFragment\")\n" +
+                        "  }\n" +
+                        "  User(id: 1) {\n" +
+                        "    ...author @import(from: \"userFragment\") @include(if: $withAuthor)\n" +
+                        "  }\n" +
+                        "}\n" +
+                        "\n" +
+                        "fragment author on User @export {\n" +
+                        "  first_name\n" +
+                        "}\n" +
+                        "\n" +
+                        "fragment fullTweet on Tweet @export {\n" +
+                        "  body\n" +
+                        "  Author {\n" +
+                        "    ...author @import(from: \"userFragment\")\n" +
+                        "  }\n" +
+                        "}\n"),
+                AstPrinter.printAst(document));
+    }
+
+    @Test
+    public void inlineImportedFragmentsSpreadOnce() throws Exception {
+        writeFiles();
+        GenerationOptions options = GenerationOptions.newOptions().treeShake(true).inlineSingleUseFragments(true).build();
+        Document document = generate(options);
+
+        // author is spread twice so it stays a fragment
+        assertEquals(print(
+                "query A($withAuthor: Boolean!) {\n" +
+                        "  Tweet(id: 1) {\n" +
+                        "    ... on Tweet {\n" +
+                        "      body\n" +
+                        "      Author {\n" +
+                        "        ...author @import(from: \"userFragment\")\n" +
+                        "      }\n" +
+                        "    }\n" +
+                        "  }\n" +
+                        "  User(id: 1) {\n" +
+                        "    ...author @import(from: \"userFragment\") @include(if: $withAuthor)\n" +
+                        "  }\n" +
+                        "}\n" +
+                        "\n" +
+                        "fragment author on User @export {\n" +
+                        "  first_name\n" +
+                        "}\n"),
+                AstPrinter.printAst(document));
+    }
+
+    @Test
+    public void keepUnchangedDocumentsAndDefinitions() {
+        Document document = new Parser().parseDocument(
+                "query B {\n" +
+                        "    Tweet(id: 2) {\n" +
+                        "        ...localTweet\n" +
+                        "    }\n" +
+                        "}\n" +
+                        "fragment localTweet on Tweet {\n" +
+                        "    id\n" +
+                        "}");
+        DocumentOptimizer documentOptimizer = new DocumentOptimizer(true);
+        assertSame(document, documentOptimizer.optimize(document, document));
+
+        Document library = new Parser().parseDocument(USER_FRAGMENT);
+        assertSame(library, documentOptimizer.optimize(library, library));
+    }
+
+    @Test
+    public void leaveSelectionSetsWhichWouldBeEmpty() {
+        Document document = new Parser().parseDocument(
+                "query C {\n" +
+                        "    Tweet(id: 3) {\n" +
+                        "        ...localTweet @include(if: false)\n" +
+                        "    }\n" +
+                        "}\n" +
+                        "fragment localTweet on Tweet {\n" +
+                        "    id\n" +
+                        "}");
+        Document optimized = new DocumentOptimizer(false).optimize(document, document);
+
+        assertSame(document, optimized);
+        assertEquals(1, optimized.getDefinitionsOfType(FragmentDefinition.class).size());
+    }
+
+    private static String print(String document) {
+        return AstPrinter.printAst(new Parser().parseDocument(document));
+    }
+
+    private Document generate(GenerationOptions options) {
+        List<File> files = new ArrayList<>(FileUtils.listFiles(folder.getRoot(), new String[]{"graphql"}, true));
+        Map<String, Document> documents = DocumentReader.generateDocuments(files, folder.getRoot().getPath(), options);
+        return documents.get(folder.getRoot().toPath().resolve("queryA.graphql").toString());
+    }
+
+    private void writeFiles() throws Exception {
+        write("userFragment.graphql", USER_FRAGMENT);
+        write("tweetFragment.graphql", TWEET_FRAGMENT);
+        write("queryA.graphql", QUERY);
+    }
+
+    private void write(String relativePath,
+                       String content) throws Exception {
+        Path path = folder.getRoot().toPath().resolve(relativePath);
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
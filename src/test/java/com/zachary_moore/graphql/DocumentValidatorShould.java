@@ -0,0 +1,197 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.Document;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.SchemaParser;
+import graphql.schema.idl.UnExecutableSchemaGenerator;
+import graphql.validation.Validator;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class DocumentValidatorShould {
+
+    private static final GraphQLSchema SCHEMA = UnExecutableSchemaGenerator.makeUnExecutableSchema(new SchemaParser().parse(
+            "directive @export on FRAGMENT_DEFINITION\n" +
+                    "directive @import(from: String!) on FRAGMENT_SPREAD\n" +
+                    "type Query {\n" +
+                    "    Tweet(id: Int): Tweet\n" +
+                    "    User(id: Int): User\n" +
+                    "}\n" +
+                    "type Tweet {\n" +
+                    "    id: Int\n" +
+                    "    body: String\n" +
+                    "    Author(size: Int): User\n" +
+                    "}\n" +
+                    "type User {\n" +
+                    "    first_name: String\n" +
+                    "    last_name: String\n" +
+                    "}"));
+
+    private static final String USER_FRAGMENT =
+            "fragment author on User @export {\n" +
+                    "    first_name\n" +
+                    "}";
+
+    private static final String TWEET_FRAGMENT =
+            "fragment fullTweet on Tweet @export {\n" +
+                    "    body\n" +
+                    "    Author(size: $size) {\n" +
+                    "        ...author @import(from: \"userFragment\")\n" +
+                    "    }\n" +
+                    "}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void acceptValidDocuments() throws Exception {
+        write("userFragment.graphql", USER_FRAGMENT);
+        write("tweetFragment.graphql", TWEET_FRAGMENT);
+        write("queryA.graphql",
+                "query A($size: Int) {\n" +
+                        "    Tweet(id: 1) {\n" +
+                        "        ...fullTweet @import(from: \"tweetFragment\")\n" +
+                        "    }\n" +
+                        "    User(id: 1) {\n" +
+                        "        ...author @import(from: \"userFragment\")\n" +
+                        "    }\n" +
+                        "}");
+
+        Map<String, Document> validated = generate(GenerationOptions.newOptions().schema(SCHEMA).parallelism(2).build());
+
+        assertEquals(generate(GenerationOptions.defaults()).keySet(), validated.keySet());
+        for (Document document : validated.values()) {
+            assertTrue(new Validator().validateDocument(SCHEMA, document).isEmpty());
+        }
+    }
+
+    @Test
+    public void reportImportsSpreadOnTheWrongType() throws Exception {
+        write("userFragment.graphql", USER_FRAGMENT);
+        write("queryA.graphql",
+                "query A {\n" +
+                        "    Tweet(id: 1) {\n" +
+                        "        ...author @import(from: \"userFragment\")\n" +
+                        "    }\n" +
+                        "}");
+
+        assertInvalid("queryA.graphql", "author");
+    }
+
+    @Test
+    public void reportVariablesImportsUseWhichTheOperationDoesntDefine() throws Exception {
+        write("userFragment.graphql", USER_FRAGMENT);
+        write("tweetFragment.graphql", TWEET_FRAGMENT);
+        write("queryA.graphql",
+                "query A {\n" +
+                        "    Tweet(id: 1) {\n" +
+                        "        ...fullTweet @import(from: \"tweetFragment\")\n" +
+                        "    }\n" +
+                        "}");
+
+        assertInvalid("queryA.graphql", "size");
+    }
+
+    @Test
+    public void reportErrorsInImportedFragments() throws Exception {
+        write("userFragment.graphql", USER_FRAGMENT.replace("first_name", "middle_name"));
+        write("queryA.graphql",
+                "query A {\n" +
+                        "    User(id: 1) {\n" +
+                        "        ...author @import(from: \"userFragment\")\n" +
+                        "    }\n" +
+                        "}");
+
+        assertInvalid("queryA.graphql", "middle_name");
+    }
+
+    @Test
+    public void validateUnchangedDocumentsAgainstANewSchema() throws Exception {
+        write("userFragment.graphql", USER_FRAGMENT);
+        write("queryA.graphql",
+                "query A {\n" +
+                        "    User(id: 1) {\n" +
+                        "        ...author @import(from: \"userFragment\")\n" +
+                        "    }\n" +
+                        "}");
+        GraphQLSchema schemaWithoutFirstName = UnExecutableSchemaGenerator.makeUnExecutableSchema(new SchemaParser().parse(
+                "type Query {\n" +
+                        "    User(id: Int): User\n" +
+                        "}\n" +
+                        "type User {\n" +
+                        "    last_name: String\n" +
+                        "}"));
+        Path indexFile = folder.getRoot().toPath().resolve("build/imports.idx");
+        List<File> files = new ArrayList<>(FileUtils.listFiles(folder.getRoot(), new String[]{"graphql"}, true));
+
+        IncrementalDocumentReader.generateDocuments(files, folder.getRoot().getPath(), indexFile, GenerationOptions.defaults());
+        assertTrue(IncrementalDocumentReader.generateDocuments(files, folder.getRoot().getPath(), indexFile,
+                GenerationOptions.newOptions().schema(SCHEMA).build()).isFullRebuild());
+        try {
+            IncrementalDocumentReader.generateDocuments(files, folder.getRoot().getPath(), indexFile,
+                    GenerationOptions.newOptions().schema(schemaWithoutFirstName).build());
+            fail("Expected queryA.graphql to be invalid against the new schema");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("first_name"));
+        }
+    }
+
+    @Test
+    public void agreeWithValidatingWholeDocuments() {
+        String[] operations = {
+                "query A { Tweet(id: 1) { ...fullTweet } }",
+                "query A($size: Int) { Tweet(id: 1) { ...fullTweet } }",
+                "query A($size: Int, $unused: Int) { Tweet(id: 1) { ...fullTweet } }",
+                "query A($size: Int) { User(id: 1) { ...fullTweet } }",
+                "query A($size: Int) { Tweet(id: 1) { body ...localTweet } } fragment localTweet on Tweet { ...fullTweet }",
+                "query A($size: Int) { Tweet(id: 1) { ...fullTweet } } fragment unusedTweet on Tweet { id }",
+                "query A { User(id: 1) { ...author } }",
+                "query A { User(id: 1) { ...author missing } }",
+        };
+        Document library = DocumentReader.parse(new File("library.graphql"),
+                USER_FRAGMENT + "\n" + TWEET_FRAGMENT.replace(" @import(from: \"userFragment\")", ""));
+        for (String operation : operations) {
+            Document original = DocumentReader.parse(new File("query.graphql"), operation);
+            List<graphql.language.Definition> definitions = new ArrayList<>(original.getDefinitions());
+            definitions.addAll(library.getDefinitions());
+            Document finalDocument = Document.newDocument().definitions(definitions).build();
+
+            assertEquals(operation,
+                    new Validator().validateDocument(SCHEMA, finalDocument).isEmpty(),
+                    new DocumentValidator(SCHEMA).validate(original, finalDocument).isEmpty());
+        }
+    }
+
+    private void assertInvalid(String path,
+                               String expectedInMessage) {
+        try {
+            generate(GenerationOptions.newOptions().schema(SCHEMA).build());
+            fail("Expected " + path + " to be invalid");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith(new File(folder.getRoot(), path).getPath() + " is not valid"));
+            assertTrue(e.getMessage(), e.getMessage().contains(expectedInMessage));
+        }
+    }
+
+    private Map<String, Document> generate(GenerationOptions options) {
+        List<File> files = new ArrayList<>(FileUtils.listFiles(folder.getRoot(), new String[]{"graphql"}, true));
+        return DocumentReader.generateDocuments(files, folder.getRoot().getPath(), options);
+    }
+
+    private void write(String relativePath,
+                       String content) throws Exception {
+        Files.write(folder.getRoot().toPath().resolve(relativePath), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,79 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.AstPrinter;
+import graphql.language.Document;
+import graphql.parser.Parser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class DocumentWriterShould {
+
+    private static final String QUERY =
+            "query A {\n" +
+                    "    Tweet(id: 2) {\n" +
+                    "        id\n" +
+                    "    }\n" +
+                    "}";
+
+    private static final String CHANGED_QUERY =
+            "query A {\n" +
+                    "    Tweet(id: 3) {\n" +
+                    "        id\n" +
+                    "    }\n" +
+                    "}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void mirrorQueryTree() throws Exception {
+        Path root = folder.getRoot().toPath().resolve("queries");
+        Path output = folder.getRoot().toPath().resolve("generated");
+        Document document = Parser.parse(QUERY);
+
+        int written = DocumentWriter.writeDocuments(
+                documents(root.resolve("package1/nested/QueryA.graphql").toString(), document),
+                root.toString(),
+                output);
+
+        assertEquals(1, written);
+        Path target = output.resolve("package1/nested/QueryA.graphql");
+        assertEquals(AstPrinter.printAst(document), new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void notRewriteUnchangedFiles() throws Exception {
+        Path root = folder.getRoot().toPath().resolve("queries");
+        Path output = folder.getRoot().toPath().resolve("generated");
+        String source = root.resolve("QueryA.graphql").toString();
+        Path target = output.resolve("QueryA.graphql");
+        DocumentWriter documentWriter = new DocumentWriter(root.toString(), output);
+
+        assertTrue(documentWriter.write(source, Parser.parse(QUERY)));
+        FileTime stableTime = FileTime.fromMillis(1_000_000_000_000L);
+        Files.setLastModifiedTime(target, stableTime);
+
+        assertFalse(documentWriter.write(source, Parser.parse(QUERY)));
+        assertEquals(stableTime, Files.getLastModifiedTime(target));
+
+        assertTrue(documentWriter.write(source, Parser.parse(CHANGED_QUERY)));
+        assertNotEquals(stableTime, Files.getLastModifiedTime(target));
+    }
+
+    private static Map<String, Document> documents(String path,
+                                                   Document document) {
+        Map<String, Document> documents = new HashMap<>();
+        documents.put(path, document);
+        return documents;
+    }
+}
@@ -0,0 +1,132 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.AstPrinter;
+import graphql.language.Document;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ExportAnalysisShould {
+
+    private static final String USER_FRAGMENT =
+            "fragment author on User @export {\n" +
+                    "    first_name\n" +
+                    "}";
+
+    private static final String TWEET_FRAGMENT =
+            "fragment fullTweet on Tweet @export {\n" +
+                    "    body\n" +
+                    "    Author {\n" +
+                    "        ...author @import(from: \"userFragment\")\n" +
+                    "    }\n" +
+                    "}";
+
+    private static final String DEAD_LIBRARY =
+            "fragment oldTweet on Tweet @export {\n" +
+                    "    ...oldTweetBody\n" +
+                    "}\n" +
+                    "fragment oldTweetBody on Tweet {\n" +
+                    "    Author {\n" +
+                    "        ...author @import(from: \"userFragment\")\n" +
+                    "    }\n" +
+                    "}\n" +
+                    "fragment oldAuthor on User @export {\n" +
+                    "    last_name\n" +
+                    "}";
+
+    private static final String QUERY =
+            "query A {\n" +
+                    "    Tweet(id: 1) {\n" +
+                    "        ...fullTweet @import(from: \"tweetFragment\")\n" +
+                    "    }\n" +
+                    "}";
+
+    private static final String QUERY_IMPORTING_DEAD_LIBRARY =
+            "query B {\n" +
+                    "    Tweet(id: 2) {\n" +
+                    "        ...oldTweet @import(from: \"deadLibrary\")\n" +
+                    "    }\n" +
+                    "}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void findUnusedExportsAndDeadFiles() throws Exception {
+        writeLibraries();
+        ExportAnalysis analysis = ExportAnalysis.analyze(listFiles(), folder.getRoot().getPath());
+
+        Map<String, Integer> userFanIn = analysis.getFanIn().get("userFragment");
+        assertEquals(Integer.valueOf(2), userFanIn.get("author"));
+        assertEquals(Integer.valueOf(1), analysis.getFanIn().get("tweetFragment").get("fullTweet"));
+        assertEquals(Integer.valueOf(0), analysis.getFanIn().get("deadLibrary").get("oldTweet"));
+
+        Map<String, Set<String>> expectedUnused = new HashMap<>();
+        expectedUnused.put("deadLibrary", new HashSet<>(Arrays.asList("oldAuthor", "oldTweet")));
+        assertEquals(expectedUnused, analysis.getUnusedExports());
+        assertEquals(Collections.singleton("deadLibrary"), analysis.getDeadFiles());
+    }
+
+    @Test
+    public void skipParsingPrunedFilesUnlessImported() throws Exception {
+        writeLibraries();
+        Path pruneList = folder.getRoot().toPath().resolve("prune.txt");
+        ExportAnalysis.analyze(listFiles(), folder.getRoot().getPath()).writePruneList(pruneList);
+        Map<String, Document> unpruned = DocumentReader.generateDocuments(listFiles(), folder.getRoot().getPath());
+
+        List<String> parsedPaths = new ArrayList<>();
+        GenerationOptions options = GenerationOptions.newOptions()
+                .prune(pruneList)
+                .listener(new ResolutionListener() {
+                    @Override
+                    public void onFileParsed(String path, int sizeBytes, long durationNanos) {
+                        parsedPaths.add(path);
+                    }
+                })
+                .build();
+        Map<String, Document> pruned = DocumentReader.generateDocuments(listFiles(), folder.getRoot().getPath(), options);
+
+        assertEquals(print(unpruned), print(pruned));
+        assertEquals(3, parsedPaths.size());
+        assertFalse(parsedPaths.contains(folder.getRoot().toPath().resolve("deadLibrary.graphql").toString()));
+
+        // A new import of a pruned file means it has to be parsed after all
+        write("queryB.graphql", QUERY_IMPORTING_DEAD_LIBRARY);
+        parsedPaths.clear();
+        Map<String, Document> revived = DocumentReader.generateDocuments(listFiles(), folder.getRoot().getPath(), options);
+
+        assertEquals(print(DocumentReader.generateDocuments(listFiles(), folder.getRoot().getPath())), print(revived));
+        assertEquals(5, parsedPaths.size());
+    }
+
+    private void writeLibraries() throws Exception {
+        write("userFragment.graphql", USER_FRAGMENT);
+        write("tweetFragment.graphql", TWEET_FRAGMENT);
+        write("deadLibrary.graphql", DEAD_LIBRARY);
+        write("queryA.graphql", QUERY);
+    }
+
+    private static Map<String, String> print(Map<String, Document> documents) {
+        Map<String, String> printed = new TreeMap<>();
+        documents.forEach((path, document) -> printed.put(path, AstPrinter.printAst(document)));
+        return printed;
+    }
+
+    private List<File> listFiles() {
+        return new ArrayList<>(FileUtils.listFiles(folder.getRoot(), new String[]{"graphql"}, true));
+    }
+
+    private void write(String relativePath,
+                       String content) throws Exception {
+        Files.write(folder.getRoot().toPath().resolve(relativePath), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,149 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.AstPrinter;
+import graphql.language.Document;
+import graphql.language.FragmentDefinition;
+import graphql.parser.Parser;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class FragmentNamespacesShould {
+
+    private static final String TWEET_FRAGMENT =
+            "fragment fullTweet on Tweet @export {\n" +
+                    "    body\n" +
+                    "    Author {\n" +
+                    "        ...author\n" +
+                    "    }\n" +
+                    "}\n" +
+                    "fragment author on User {\n" +
+                    "    first_name\n" +
+                    "}";
+
+    private static final String QUERY =
+            "query A {\n" +
+                    "    Tweet(id: 1) {\n" +
+                    "        ...fullTweet @import(from: \"shared.tweetFragment\")\n" +
+                    "    }\n" +
+                    "    User(id: 1) {\n" +
+                    "        ...author\n" +
+                    "    }\n" +
+                    "}\n" +
+                    "fragment author on User {\n" +
+                    "    last_name\n" +
+                    "}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void keepImportDependenciesApartFromFragmentsOfTheDocument() throws Exception {
+        write("shared/tweetFragment.graphql", TWEET_FRAGMENT);
+        write("queryA.graphql", QUERY);
+
+        Map<String, Document> documents = generate(GenerationOptions.newOptions().namespaceImports(true).build());
+
+        assertEquals(print(
+                "query A {\n" +
+                        "  Tweet(id: 1) {\n" +
+                        "    ...shared_tweetFragment__fullTweet @import(from: \"shared.tweetFragment\")\n" +
+                        "  }\n" +
+                        "  User(id: 1) {\n" +
+                        "    ...author\n" +
+                        "  }\n" +
+                        "}\n" +
+                        "\n" +
+                        "fragment author on User {\n" +
+                        "  last_name\n" +
+                        "}\n" +
+                        "\n" +
+                        "fragment shared_tweetFragment__author on User {\n" +
+                        "  first_name\n" +
+                        "}\n" +
+                        "\n" +
+                        "fragment shared_tweetFragment__fullTweet on Tweet @export {\n" +
+                        "  body\n" +
+                        "  Author {\n" +
+                        "    ...shared_tweetFragment__author\n" +
+                        "  }\n" +
+                        "}"),
+                AstPrinter.printAst(documents.get(path("queryA.graphql"))));
+    }
+
+    @Test
+    public void renameEachImportOncePerRun() throws Exception {
+        write("shared/tweetFragment.graphql", TWEET_FRAGMENT);
+        write("queryA.graphql", QUERY);
+        write("queryB.graphql", QUERY.replace("query A", "query B"));
+        GenerationOptions options = GenerationOptions.newOptions().namespaceImports(true).parallelism(2).build();
+
+        Map<String, Document> documents = generate(options);
+        FragmentDefinition fullTweetA = getFragment(documents.get(path("queryA.graphql")), "shared_tweetFragment__fullTweet");
+        FragmentDefinition fullTweetB = getFragment(documents.get(path("queryB.graphql")), "shared_tweetFragment__fullTweet");
+
+        assertSame(fullTweetA, fullTweetB);
+        assertEquals(AstPrinter.printAst(documents.get(path("queryA.graphql"))),
+                AstPrinter.printAst(generate(options).get(path("queryA.graphql"))));
+    }
+
+    @Test
+    public void reportNamespacedNamesTheDocumentAlreadyUses() throws Exception {
+        write("shared/tweetFragment.graphql", TWEET_FRAGMENT);
+        write("queryA.graphql", QUERY.replace("author", "shared_tweetFragment__author"));
+
+        try {
+            generate(GenerationOptions.newOptions().namespaceImports(true).build());
+            fail("Expected the namespaced name to collide");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("shared_tweetFragment__author"));
+        }
+    }
+
+    @Test
+    public void deriveValidNamesFromImportPaths() {
+        assertEquals("package1_nested_QueryA__simpleTweet", FragmentNamespaces.getNamespacedName("package1.nested.QueryA", "simpleTweet"));
+        assertEquals("_2021_shared_fragments__author", FragmentNamespaces.getNamespacedName("2021/shared-fragments", "author"));
+    }
+
+    private static FragmentDefinition getFragment(Document document,
+                                                  String name) {
+        for (FragmentDefinition fragmentDefinition : document.getDefinitionsOfType(FragmentDefinition.class)) {
+            if (fragmentDefinition.getName().equals(name)) {
+                return fragmentDefinition;
+            }
+        }
+        throw new AssertionError("No fragment " + name);
+    }
+
+    private static String print(String document) {
+        return AstPrinter.printAst(new Parser().parseDocument(document));
+    }
+
+    private String path(String relativePath) {
+        return folder.getRoot().toPath().resolve(relativePath).toString();
+    }
+
+    private Map<String, Document> generate(GenerationOptions options) {
+        List<File> files = new ArrayList<>(FileUtils.listFiles(folder.getRoot(), new String[]{"graphql"}, true));
+        return DocumentReader.generateDocuments(files, folder.getRoot().getPath(), options);
+    }
+
+    private void write(String relativePath,
+                       String content) throws Exception {
+        Path path = folder.getRoot().toPath().resolve(relativePath);
+        Files.createDirectories(path.getParent());
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
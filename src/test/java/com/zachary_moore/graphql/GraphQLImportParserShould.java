@@ -1,5 +1,7 @@
 package com.zachary_moore.graphql;
 
+import graphql.language.AstPrinter;
+import graphql.language.Definition;
 import graphql.language.Document;
 import graphql.language.FragmentDefinition;
 import graphql.parser.Parser;
@@ -18,7 +20,11 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.*;
@@ -131,6 +137,31 @@ public class GraphQLImportParserShould {
                     "    ...aFragment @import(from: \"query2\")\n" +
                     "}";
 
+    private static final String FRAGMENT_WITH_NESTED_LOCAL_FRAGMENTS =
+            "fragment fullTweet on Tweet @export {\n" +
+                    "    ...tweetBody\n" +
+                    "}\n" +
+                    "fragment tweetBody on Tweet {\n" +
+                    "    body\n" +
+                    "    Author {\n" +
+                    "        ...tweetAuthor\n" +
+                    "    }\n" +
+                    "}\n" +
+                    "fragment tweetAuthor on User {\n" +
+                    "    username\n" +
+                    "}";
+
+    private static final String QUERY_IMPORTING_FRAGMENT_AND_ITS_DEPENDENCY =
+            "query E {\n" +
+                    "    Tweet(id: 2) {\n" +
+                    "        ...fullTweet @import(from: \"tweetFragment\")\n" +
+                    "        ...simpleTweet @import(from: \"simpleTweetFragment\")\n" +
+                    "        Author {\n" +
+                    "            ...author @import(from: \"userFragment\")\n" +
+                    "        }\n" +
+                    "    }\n" +
+                    "}";
+
     @Rule
     public TemporaryFolder folder = new TemporaryFolder();
 
@@ -286,6 +317,176 @@ public class GraphQLImportParserShould {
         getFinalDocuments(folder.getRoot().getPath());
     }
 
+    @Test
+    public void produceSameDocumentsInParallel() throws Exception {
+        writeTo(folder.getRoot().toPath().resolve("userFragment.graphql").toString(), FRAGMENT_ON_USER);
+        writeTo(folder.getRoot().toPath().resolve("tweetFragment.graphql").toString(), FRAGMENT_ON_TWEET_REFERENCING_FRAGMENT);
+        writeTo(folder.getRoot().toPath().resolve("tweetQuery.graphql").toString(), QUERY_WITH_FRAGMENT_IMPORT_REFERENCING_FRAGMENT);
+        writeTo(folder.getRoot().toPath().resolve("query1.graphql").toString(), QUERY_WITH_SIMPLE_EXPORT);
+        writeTo(folder.getRoot().toPath().resolve("query2.graphql").toString(), QUERY_WITH_SIMPLE_IMPORT_USED_MULTIPLE_TIMES);
+
+        Map<String, Document> serialDocuments = getFinalDocuments(folder.getRoot().getPath());
+        Map<String, Document> parallelDocuments = getFinalDocuments(folder.getRoot().getPath(),
+                GenerationOptions.newOptions().parallelism(4).build());
+
+        assertEquals(serialDocuments.keySet(), parallelDocuments.keySet());
+        for (String path : serialDocuments.keySet()) {
+            assertEquals(printDefinitions(serialDocuments.get(path)), printDefinitions(parallelDocuments.get(path)));
+        }
+    }
+
+    @Test
+    public void nameFailingFileInParallel() throws Exception {
+        File query1 = folder.getRoot().toPath().resolve("query1.graphql").toFile();
+        File query2 = folder.getRoot().toPath().resolve("query2.graphql").toFile();
+
+        writeTo(query1.getPath(), QUERY_WITH_SIMPLE_EXPORT);
+        writeTo(query2.getPath(), QUERY_WITHOUT_IMPORT);
+
+        try {
+            getFinalDocuments(folder.getRoot().getPath(), GenerationOptions.newOptions().parallelism(2).build());
+            fail("Expected to fail with no import declared");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains(query2.getPath()));
+        }
+    }
+
+    @Test
+    public void streamSameDocumentsAsGenerated() throws Exception {
+        writeTo(folder.getRoot().toPath().resolve("userFragment.graphql").toString(), FRAGMENT_ON_USER);
+        writeTo(folder.getRoot().toPath().resolve("tweetFragment.graphql").toString(), FRAGMENT_ON_TWEET_REFERENCING_FRAGMENT);
+        writeTo(folder.getRoot().toPath().resolve("tweetQuery.graphql").toString(), QUERY_WITH_FRAGMENT_IMPORT_REFERENCING_FRAGMENT);
+        writeTo(folder.getRoot().toPath().resolve("query1.graphql").toString(), QUERY_WITH_SIMPLE_EXPORT);
+        writeTo(folder.getRoot().toPath().resolve("query2.graphql").toString(), QUERY_WITH_SIMPLE_IMPORT_USED_MULTIPLE_TIMES);
+
+        Map<String, Document> generatedDocuments = getFinalDocuments(folder.getRoot().getPath());
+        for (GenerationOptions options : Arrays.asList(GenerationOptions.defaults(), GenerationOptions.newOptions().parallelism(2).build())) {
+            Map<String, Document> streamedDocuments = new HashMap<>();
+            DocumentReader.streamDocuments(listFiles(), folder.getRoot().getPath(), options, streamedDocuments::put);
+
+            assertEquals(generatedDocuments.keySet(), streamedDocuments.keySet());
+            for (String path : generatedDocuments.keySet()) {
+                assertEquals(printDefinitions(generatedDocuments.get(path)), printDefinitions(streamedDocuments.get(path)));
+            }
+        }
+    }
+
+    @Test
+    public void notGrowHeapWithOperationFiles() throws Exception {
+        // Retained heap at the last streamed document against holding every generated document, at two corpus sizes
+        long streamedGrowth = retainedHeap(2000, true) - retainedHeap(200, true);
+        long generatedGrowth = retainedHeap(2000, false) - retainedHeap(200, false);
+
+        assertTrue("Streaming retained " + streamedGrowth + " more bytes, generating " + generatedGrowth,
+                streamedGrowth < generatedGrowth / 4);
+    }
+
+    /**
+     * @return heap still in use once the last document of the corpus has been resolved, over what was in use before
+     */
+    private long retainedHeap(int operationCount,
+                              boolean streamed) throws Exception {
+        File root = folder.newFolder("corpus" + operationCount + (streamed ? "streamed" : "generated"));
+        writeTo(new File(root, "query1.graphql").getPath(), SIMPLE_FRAGMENT_EXPORT_WITHOUT_QUERY);
+        for (int i = 0; i < operationCount; i++) {
+            writeTo(new File(root, "operation" + i + ".graphql").getPath(), QUERY_WITH_SIMPLE_IMPORT);
+        }
+        List<File> files = new ArrayList<>(FileUtils.listFiles(root, new String[]{"graphql"}, false));
+
+        long before = usedHeap();
+        if (streamed) {
+            long[] retained = new long[1];
+            int[] streamedCount = new int[1];
+            DocumentReader.streamDocuments(files, root.getPath(), (path, document) -> {
+                if (++streamedCount[0] == operationCount) {
+                    retained[0] = usedHeap() - before;
+                }
+            });
+            assertEquals(operationCount, streamedCount[0]);
+            return retained[0];
+        }
+        Map<String, Document> documents = DocumentReader.generateDocuments(files, root.getPath());
+        long retained = usedHeap() - before;
+        assertEquals(operationCount, documents.size());
+        return retained;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // Collect until nothing more is freed, a single request may not reach everything unreachable
+        for (int attempt = 0; attempt < 10; attempt++) {
+            System.gc();
+            long nowUsed = runtime.totalMemory() - runtime.freeMemory();
+            if (nowUsed >= used) {
+                return nowUsed;
+            }
+            used = nowUsed;
+        }
+        return used;
+    }
+
+    @Test
+    public void reportCyclesWithTheirPath() throws Exception {
+        writeTo(folder.getRoot().toPath().resolve("query1.graphql").toString(), FRAGMENT_WITH_CYCLE);
+        writeTo(folder.getRoot().toPath().resolve("query2.graphql").toString(), QUERY_WITH_FRAGMENT_CYCLE_1);
+
+        try {
+            getFinalDocuments(folder.getRoot().getPath());
+            fail("Expected to fail with fragment cycle");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("query1#bFragment"));
+            assertTrue(e.getMessage(), e.getMessage().contains("query2#aFragment"));
+        }
+    }
+
+    @Test
+    public void resolveLocalFragmentsOfImportedFragmentsTransitively() throws Exception {
+        writeTo(folder.getRoot().toPath().resolve("tweetFragment.graphql").toString(), FRAGMENT_WITH_NESTED_LOCAL_FRAGMENTS);
+        File tweetQuery = folder.getRoot().toPath().resolve("tweetQuery.graphql").toFile();
+        writeTo(tweetQuery.getPath(), QUERY_WITH_FRAGMENT_IMPORT_REFERENCING_FRAGMENT);
+
+        Map<String, Document> finalDocuments = getFinalDocuments(folder.getRoot().getPath());
+
+        List<String> fragmentNames = new ArrayList<>();
+        for (FragmentDefinition fragmentDefinition : finalDocuments.get(tweetQuery.getPath()).getDefinitionsOfType(FragmentDefinition.class)) {
+            fragmentNames.add(fragmentDefinition.getName());
+        }
+        Collections.sort(fragmentNames);
+        assertEquals(Arrays.asList("fullTweet", "tweetAuthor", "tweetBody"), fragmentNames);
+    }
+
+    @Test
+    public void printIdenticalDocumentsWhateverElseIsInTheRun() throws Exception {
+        writeTo(folder.getRoot().toPath().resolve("userFragment.graphql").toString(), FRAGMENT_ON_USER);
+        writeTo(folder.getRoot().toPath().resolve("tweetFragment.graphql").toString(), FRAGMENT_ON_TWEET_REFERENCING_FRAGMENT);
+        writeTo(folder.getRoot().toPath().resolve("simpleTweetFragment.graphql").toString(), SIMPLE_FRAGMENT_EXPORT_WITHOUT_QUERY);
+        File tweetQuery = folder.getRoot().toPath().resolve("tweetQuery.graphql").toFile();
+        writeTo(tweetQuery.getPath(), QUERY_IMPORTING_FRAGMENT_AND_ITS_DEPENDENCY);
+
+        String printed = AstPrinter.printAst(getFinalDocuments(folder.getRoot().getPath()).get(tweetQuery.getPath()));
+        List<String> definitionNames = new ArrayList<>();
+        for (Definition definition : Parser.parse(printed).getDefinitions()) {
+            definitionNames.add(definition instanceof FragmentDefinition ? ((FragmentDefinition) definition).getName() : "E");
+        }
+        // Original definitions first, then imported fragments in the order they're first spread, each after the
+        // fragments it spreads
+        assertEquals(Arrays.asList("E", "author", "fullTweet", "simpleTweet"), definitionNames);
+
+        List<File> files = listFiles();
+        Collections.reverse(files);
+        assertEquals(printed, AstPrinter.printAst(DocumentReader.generateDocuments(files, folder.getRoot().getPath(),
+                GenerationOptions.newOptions().parallelism(4).build()).get(tweetQuery.getPath())));
+
+        // More libraries in the run shouldn't change the order
+        for (int i = 0; i < 20; i++) {
+            writeTo(folder.getRoot().toPath().resolve("library" + i + ".graphql").toString(),
+                    FRAGMENT_ON_USER.replace("author", "author" + i));
+        }
+        assertEquals(printed, AstPrinter.printAst(getFinalDocuments(folder.getRoot().getPath(),
+                GenerationOptions.newOptions().parallelism(4).build()).get(tweetQuery.getPath())));
+    }
+
     public void writeTo(String path, String content) throws IOException {
         Path target = Paths.get(path);
         if (Files.exists(target)) {
@@ -294,13 +495,34 @@ public class GraphQLImportParserShould {
         Files.copy(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), target);
     }
 
+    private static List<String> printDefinitions(Document document) {
+        List<String> printed = new ArrayList<>();
+        for (Definition definition : document.getDefinitions()) {
+            printed.add(AstPrinter.printAst(definition));
+        }
+        Collections.sort(printed);
+        return printed;
+    }
+
     private Map<String, Document> getFinalDocuments(String rootPath) {
+        return getFinalDocuments(rootPath, GenerationOptions.defaults());
+    }
+
+    private Map<String, Document> getFinalDocuments(String rootPath, GenerationOptions options) {
         File rootDirectory = Paths.get(rootPath).toFile();
         Collection<File> files = FileUtils.listFiles(
                 rootDirectory,
                 new RegexFileFilter("^(.*?)"),
                 DirectoryFileFilter.DIRECTORY
         );
-        return DocumentReader.generateDocuments(new ArrayList<>(files), rootPath);
+        return DocumentReader.generateDocuments(new ArrayList<>(files), rootPath, options);
+    }
+
+    private List<File> listFiles() {
+        return new ArrayList<>(FileUtils.listFiles(
+                folder.getRoot(),
+                new RegexFileFilter("^(.*?)"),
+                DirectoryFileFilter.DIRECTORY
+        ));
     }
 }
@@ -0,0 +1,197 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.Document;
+import graphql.language.FragmentDefinition;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class ImportResolverShould {
+
+    private static final String FRAGMENT_ON_USER =
+            "fragment author on User @export {\n" +
+                    "    first_name\n" +
+                    "}";
+
+    private static final String FRAGMENT_ON_USER_CHANGED =
+            "fragment author on User @export {\n" +
+                    "    first_name\n" +
+                    "    last_name\n" +
+                    "}";
+
+    private static final String QUERY_IMPORTING_USER =
+            "query E {\n" +
+                    "    User(id: 2) {\n" +
+                    "        ...author @import(from: \"lib.userFragment\")\n" +
+                    "    }\n" +
+                    "}";
+
+    private static final String QUERY_WITHOUT_IMPORTS =
+            "query F {\n" +
+                    "    Tweet(id: 2) {\n" +
+                    "        id\n" +
+                    "    }\n" +
+                    "}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void resolveEverythingUnderRoot() throws Exception {
+        write("lib/userFragment.graphql", FRAGMENT_ON_USER);
+        write("ops/userQuery.graphql", QUERY_IMPORTING_USER);
+        write("ops/plainQuery.graphql", QUERY_WITHOUT_IMPORTS);
+
+        ImportResolver importResolver = new ImportResolver(root());
+
+        assertEquals(2, importResolver.getDocuments().size());
+        assertNull(importResolver.get(path("lib/userFragment.graphql")));
+        assertEquals(1, fieldCount(importResolver.get(path("ops/userQuery.graphql"))));
+    }
+
+    @Test
+    public void updateDependentsOfChangedFiles() throws Exception {
+        write("lib/userFragment.graphql", FRAGMENT_ON_USER);
+        write("ops/userQuery.graphql", QUERY_IMPORTING_USER);
+        write("ops/plainQuery.graphql", QUERY_WITHOUT_IMPORTS);
+        ImportResolver importResolver = new ImportResolver(root());
+        Document plainQuery = importResolver.get(path("ops/plainQuery.graphql"));
+
+        write("lib/userFragment.graphql", FRAGMENT_ON_USER_CHANGED);
+        importResolver.refresh(Collections.singletonList(root().resolve("lib/userFragment.graphql")));
+
+        assertEquals(2, fieldCount(importResolver.get(path("ops/userQuery.graphql"))));
+        assertSame(plainQuery, importResolver.get(path("ops/plainQuery.graphql")));
+    }
+
+    @Test
+    public void reportErrorsWithoutDroppingOtherDocuments() throws Exception {
+        write("lib/userFragment.graphql", FRAGMENT_ON_USER);
+        write("ops/userQuery.graphql", QUERY_IMPORTING_USER);
+        write("ops/plainQuery.graphql", QUERY_WITHOUT_IMPORTS);
+        ImportResolver importResolver = new ImportResolver(root());
+
+        Files.delete(root().resolve("lib/userFragment.graphql"));
+        importResolver.refresh(Collections.singletonList(root().resolve("lib/userFragment.graphql")));
+
+        assertNull(importResolver.get(path("ops/userQuery.graphql")));
+        assertTrue(importResolver.getErrors().containsKey(path("ops/userQuery.graphql")));
+        assertNotNull(importResolver.get(path("ops/plainQuery.graphql")));
+
+        write("lib/userFragment.graphql", FRAGMENT_ON_USER);
+        importResolver.refresh(Collections.singletonList(root().resolve("lib/userFragment.graphql")));
+
+        assertTrue(importResolver.getErrors().isEmpty());
+        assertNotNull(importResolver.get(path("ops/userQuery.graphql")));
+    }
+
+    @Test
+    public void reportFragmentsDefinedTwiceAgainstTheirFile() throws Exception {
+        write("lib/userFragment.graphql", FRAGMENT_ON_USER);
+        write("ops/userQuery.graphql", QUERY_IMPORTING_USER);
+        write("ops/plainQuery.graphql", QUERY_WITHOUT_IMPORTS);
+        ImportResolver importResolver = new ImportResolver(root());
+
+        write("lib/userFragment.graphql", FRAGMENT_ON_USER + "\n" + FRAGMENT_ON_USER_CHANGED);
+        importResolver.refresh(Collections.singletonList(root().resolve("lib/userFragment.graphql")));
+
+        assertTrue(importResolver.getErrors().get(path("lib/userFragment.graphql")).contains("author is defined more than once"));
+        assertNull(importResolver.get(path("ops/userQuery.graphql")));
+        assertNotNull(importResolver.get(path("ops/plainQuery.graphql")));
+
+        write("lib/userFragment.graphql", FRAGMENT_ON_USER_CHANGED);
+        importResolver.refresh(Collections.singletonList(root().resolve("lib/userFragment.graphql")));
+
+        assertTrue(importResolver.getErrors().isEmpty());
+        assertEquals(2, fieldCount(importResolver.get(path("ops/userQuery.graphql"))));
+    }
+
+    @Test
+    public void pickUpChangesMadeBeforeWatching() throws Exception {
+        write("lib/userFragment.graphql", FRAGMENT_ON_USER);
+        write("ops/userQuery.graphql", QUERY_IMPORTING_USER);
+        write("ops/plainQuery.graphql", QUERY_WITHOUT_IMPORTS);
+
+        try (ImportResolver importResolver = new ImportResolver(root())) {
+            Document plainQuery = importResolver.get(path("ops/plainQuery.graphql"));
+            write("lib/userFragment.graphql", FRAGMENT_ON_USER_CHANGED);
+            write("ops/newQuery.graphql", QUERY_IMPORTING_USER.replace("query E", "query G"));
+            importResolver.startWatching();
+
+            assertEquals(2, fieldCount(importResolver.get(path("ops/userQuery.graphql"))));
+            assertEquals(2, fieldCount(importResolver.get(path("ops/newQuery.graphql"))));
+            assertSame(plainQuery, importResolver.get(path("ops/plainQuery.graphql")));
+        }
+    }
+
+    @Test
+    public void keepWatchingWhenDirectoriesDisappear() throws Exception {
+        write("lib/userFragment.graphql", FRAGMENT_ON_USER);
+        write("ops/userQuery.graphql", QUERY_IMPORTING_USER);
+
+        try (ImportResolver importResolver = new ImportResolver(root())) {
+            importResolver.startWatching();
+            for (int i = 0; i < 50; i++) {
+                Path directory = Files.createDirectories(root().resolve("tmp" + i + "/nested"));
+                Files.delete(directory);
+                Files.delete(directory.getParent());
+            }
+            write("lib/userFragment.graphql", FRAGMENT_ON_USER_CHANGED);
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (fieldCount(importResolver.get(path("ops/userQuery.graphql"))) != 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(2, fieldCount(importResolver.get(path("ops/userQuery.graphql"))));
+        }
+    }
+
+    @Test
+    public void pickUpChangesWhileWatching() throws Exception {
+        write("lib/userFragment.graphql", FRAGMENT_ON_USER);
+        write("ops/userQuery.graphql", QUERY_IMPORTING_USER);
+
+        try (ImportResolver importResolver = new ImportResolver(root())) {
+            importResolver.startWatching();
+            write("lib/userFragment.graphql", FRAGMENT_ON_USER_CHANGED);
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (fieldCount(importResolver.get(path("ops/userQuery.graphql"))) != 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(2, fieldCount(importResolver.get(path("ops/userQuery.graphql"))));
+        }
+    }
+
+    private static int fieldCount(Document document) {
+        for (FragmentDefinition fragmentDefinition : document.getDefinitionsOfType(FragmentDefinition.class)) {
+            if (fragmentDefinition.getName().equals("author")) {
+                return fragmentDefinition.getSelectionSet().getSelections().size();
+            }
+        }
+        return 0;
+    }
+
+    private void write(String relativePath,
+                       String content) throws IOException {
+        Path target = root().resolve(relativePath);
+        Files.createDirectories(target.getParent());
+        Files.write(target, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String path(String relativePath) {
+        return root().resolve(relativePath).toString();
+    }
+
+    private Path root() {
+        return folder.getRoot().toPath().resolve("queries");
+    }
+}
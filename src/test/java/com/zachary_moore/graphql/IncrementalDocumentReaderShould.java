@@ -0,0 +1,191 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.AstPrinter;
+import graphql.language.Definition;
+import graphql.language.Document;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class IncrementalDocumentReaderShould {
+
+    private static final String FRAGMENT_ON_USER =
+            "fragment author on User @export {\n" +
+                    "    first_name\n" +
+                    "}";
+
+    private static final String FRAGMENT_ON_USER_CHANGED =
+            "fragment author on User @export {\n" +
+                    "    first_name\n" +
+                    "    last_name\n" +
+                    "}";
+
+    private static final String FRAGMENT_ON_TWEET_REFERENCING_FRAGMENT =
+            "fragment fullTweet on Tweet @export {\n" +
+                    "    id\n" +
+                    "    Author {\n" +
+                    "        ...author @import(from: \"lib.userFragment\")\n" +
+                    "    }\n" +
+                    "}";
+
+    private static final String QUERY_IMPORTING_TWEET =
+            "query D {\n" +
+                    "    Tweet(id: 2) {\n" +
+                    "        ...fullTweet @import(from: \"lib.tweetFragment\")\n" +
+                    "    }\n" +
+                    "}";
+
+    private static final String QUERY_IMPORTING_USER =
+            "query E {\n" +
+                    "    User(id: 2) {\n" +
+                    "        ...author @import(from: \"lib.userFragment\")\n" +
+                    "    }\n" +
+                    "}";
+
+    private static final String QUERY_WITHOUT_IMPORTS =
+            "query F {\n" +
+                    "    Tweet(id: 2) {\n" +
+                    "        id\n" +
+                    "    }\n" +
+                    "}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void matchFullGenerationOnFirstRun() throws Exception {
+        writeCorpus();
+
+        IncrementalDocumentReader.Result result = generateIncrementally();
+
+        assertTrue(result.isFullRebuild());
+        assertTrue(result.getRemovedDocuments().isEmpty());
+        assertSameDocuments(generateFully(), result.getChangedDocuments());
+    }
+
+    @Test
+    public void matchFullGenerationAfterEditsAddsAndDeletes() throws Exception {
+        writeCorpus();
+        Map<String, Document> documents = new HashMap<>(generateIncrementally().getChangedDocuments());
+
+        write("lib/userFragment.graphql", FRAGMENT_ON_USER_CHANGED);
+        write("ops/newQuery.graphql", QUERY_IMPORTING_USER);
+        Files.delete(root().resolve("ops/userQuery.graphql"));
+
+        IncrementalDocumentReader.Result result = generateIncrementally();
+        assertFalse(result.isFullRebuild());
+        assertFalse(result.getChangedDocuments().containsKey(path("ops/plainQuery.graphql")));
+        assertEquals(Collections.singleton(path("ops/userQuery.graphql")), result.getRemovedDocuments());
+
+        documents.putAll(result.getChangedDocuments());
+        documents.keySet().removeAll(result.getRemovedDocuments());
+        assertSameDocuments(generateFully(), documents);
+    }
+
+    @Test
+    public void onlyParseChangedFilesAndTheirDependencies() throws Exception {
+        writeCorpus();
+        generateIncrementally();
+
+        write("ops/plainQuery.graphql", QUERY_WITHOUT_IMPORTS.replace("id\n", "id\n        body\n"));
+
+        IncrementalDocumentReader.Result result = generateIncrementally();
+        assertEquals(1, result.getParsedFileCount());
+        assertEquals(Collections.singleton(path("ops/plainQuery.graphql")), result.getChangedDocuments().keySet());
+    }
+
+    @Test
+    public void onlyHashFilesKnownToHaveChanged() throws Exception {
+        writeCorpus();
+        generateIncrementally();
+
+        write("lib/userFragment.graphql", FRAGMENT_ON_USER_CHANGED);
+        Files.delete(root().resolve("ops/plainQuery.graphql"));
+        IncrementalDocumentReader.Result result = IncrementalDocumentReader.generateDocuments(listFiles(), root().toString(),
+                indexFile(), GenerationOptions.defaults(), Collections.singletonList(root().resolve("lib/userFragment.graphql").toFile()));
+
+        assertEquals(1, result.getHashedFileCount());
+        assertEquals(Collections.singleton(path("ops/plainQuery.graphql")), result.getRemovedDocuments());
+        assertEquals(new HashSet<>(Arrays.asList(path("ops/userQuery.graphql"), path("ops/tweetQuery.graphql"))),
+                result.getChangedDocuments().keySet());
+        assertEquals(0, generateIncrementally().getChangedDocuments().size());
+    }
+
+    @Test
+    public void rebuildFullyFromCorruptIndex() throws Exception {
+        writeCorpus();
+        generateIncrementally();
+        Files.write(indexFile(), new byte[]{1, 2, 3});
+
+        IncrementalDocumentReader.Result result = generateIncrementally();
+
+        assertTrue(result.isFullRebuild());
+        assertSameDocuments(generateFully(), result.getChangedDocuments());
+    }
+
+    private void writeCorpus() throws IOException {
+        write("lib/userFragment.graphql", FRAGMENT_ON_USER);
+        write("lib/tweetFragment.graphql", FRAGMENT_ON_TWEET_REFERENCING_FRAGMENT);
+        write("ops/tweetQuery.graphql", QUERY_IMPORTING_TWEET);
+        write("ops/userQuery.graphql", QUERY_IMPORTING_USER);
+        write("ops/plainQuery.graphql", QUERY_WITHOUT_IMPORTS);
+    }
+
+    private IncrementalDocumentReader.Result generateIncrementally() {
+        return IncrementalDocumentReader.generateDocuments(listFiles(), root().toString(), indexFile());
+    }
+
+    private Map<String, Document> generateFully() {
+        return DocumentReader.generateDocuments(listFiles(), root().toString());
+    }
+
+    private static void assertSameDocuments(Map<String, Document> expected,
+                                            Map<String, Document> actual) {
+        assertEquals(expected.keySet(), actual.keySet());
+        for (String path : expected.keySet()) {
+            assertEquals(printDefinitions(expected.get(path)), printDefinitions(actual.get(path)));
+        }
+    }
+
+    private static List<String> printDefinitions(Document document) {
+        List<String> printed = new ArrayList<>();
+        for (Definition definition : document.getDefinitions()) {
+            printed.add(AstPrinter.printAst(definition));
+        }
+        Collections.sort(printed);
+        return printed;
+    }
+
+    private List<File> listFiles() {
+        return new ArrayList<>(FileUtils.listFiles(root().toFile(), new String[]{"graphql"}, true));
+    }
+
+    private void write(String relativePath,
+                       String content) throws IOException {
+        Path target = root().resolve(relativePath);
+        Files.createDirectories(target.getParent());
+        Files.write(target, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String path(String relativePath) {
+        return root().resolve(relativePath).toString();
+    }
+
+    private Path root() {
+        return folder.getRoot().toPath().resolve("queries");
+    }
+
+    private Path indexFile() {
+        return folder.getRoot().toPath().resolve("build").resolve("imports.idx");
+    }
+}
@@ -0,0 +1,106 @@
+package com.zachary_moore.graphql;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class JsonSummaryListenerShould {
+
+    private static final String USER_FRAGMENTS =
+            "fragment author on User @export {\n" +
+                    "    first_name\n" +
+                    "    ...avatar\n" +
+                    "}\n" +
+                    "fragment avatar on User {\n" +
+                    "    avatar_url\n" +
+                    "}";
+
+    private static final String QUERY_A =
+            "query A {\n" +
+                    "    Tweet(id: 1) {\n" +
+                    "        ...author @import(from: \"userFragment\")\n" +
+                    "    }\n" +
+                    "}";
+
+    private static final String QUERY_B =
+            "query B {\n" +
+                    "    Tweet(id: 2) {\n" +
+                    "        ...author @import(from: \"userFragment\")\n" +
+                    "    }\n" +
+                    "}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void summariseRun() throws Exception {
+        write("userFragment.graphql", USER_FRAGMENTS);
+        write("a.graphql", QUERY_A);
+        write("b.graphql", QUERY_B);
+        List<File> files = new ArrayList<>(FileUtils.listFiles(folder.getRoot(), new String[]{"graphql"}, true));
+        Set<ResolutionListener.Phase> phases = EnumSet.noneOf(ResolutionListener.Phase.class);
+        JsonSummaryListener summary = new JsonSummaryListener();
+        ResolutionListener listener = new ResolutionListener() {
+            @Override
+            public void onPhase(Phase phase, long durationNanos) {
+                phases.add(phase);
+                summary.onPhase(phase, durationNanos);
+            }
+
+            @Override
+            public void onFileParsed(String path, int sizeBytes, long durationNanos) {
+                summary.onFileParsed(path, sizeBytes, durationNanos);
+            }
+
+            @Override
+            public void onClosureLookup(String importPath, String fragmentName, int closureSize, boolean hit) {
+                summary.onClosureLookup(importPath, fragmentName, closureSize, hit);
+            }
+        };
+
+        DocumentReader.generateDocuments(files, folder.getRoot().getPath(),
+                GenerationOptions.newOptions().parallelism(1).listener(listener).build());
+
+        assertEquals(EnumSet.allOf(ResolutionListener.Phase.class), phases);
+        assertEquals(2, summary.getLookups());
+        assertEquals(1, summary.getMisses());
+        assertEquals(1, summary.getHits());
+        String json = summary.toJson();
+        assertTrue(json.contains("\"count\": 3"));
+        assertTrue(json.contains("\"userFragment\": {\"lookups\": 2, \"misses\": 1, \"definitions\": 4}"));
+        assertTrue(json.contains("{\"import\": \"userFragment\", \"fragment\": \"author\", \"size\": 2}"));
+    }
+
+    @Test
+    public void listEachClosureOnceAcrossRuns() throws Exception {
+        write("userFragment.graphql", USER_FRAGMENTS);
+        write("a.graphql", QUERY_A);
+        List<File> files = new ArrayList<>(FileUtils.listFiles(folder.getRoot(), new String[]{"graphql"}, true));
+        JsonSummaryListener summary = new JsonSummaryListener();
+        GenerationOptions options = GenerationOptions.newOptions().listener(summary).build();
+
+        for (int run = 0; run < 3; run++) {
+            DocumentReader.generateDocuments(files, folder.getRoot().getPath(), options);
+        }
+
+        assertEquals(3, summary.getMisses());
+        String json = summary.toJson();
+        assertEquals(json.indexOf("\"fragment\": \"author\""), json.lastIndexOf("\"fragment\": \"author\""));
+    }
+
+    private void write(String relativePath,
+                       String content) throws Exception {
+        Files.write(folder.getRoot().toPath().resolve(relativePath), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,173 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.AstPrinter;
+import graphql.language.Document;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class LibraryCacheShould {
+
+    private static final int ROOTS = 32;
+    private static final int THREADS = 8;
+
+    private static final String USER_FRAGMENT =
+            "fragment author on User @export {\n" +
+                    "    first_name\n" +
+                    "}";
+
+    private static final String TWEET_FRAGMENT =
+            "fragment fullTweet on Tweet @export {\n" +
+                    "    body\n" +
+                    "    Author {\n" +
+                    "        ...author @import(from: \"shared.userFragment\")\n" +
+                    "    }\n" +
+                    "}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shareLibrariesBetweenConcurrentRoots() throws Exception {
+        List<Path> roots = new ArrayList<>();
+        for (int i = 0; i < ROOTS; i++) {
+            roots.add(writeRoot(i, false));
+        }
+        Map<Path, Map<String, String>> expected = new HashMap<>();
+        for (Path root : roots) {
+            expected.put(root, generate(root, GenerationOptions.defaults()));
+        }
+
+        LibraryCache libraryCache = new LibraryCache(Long.MAX_VALUE);
+        GenerationOptions options = GenerationOptions.newOptions().libraryCache(libraryCache).build();
+        assertEquals(expected.get(roots.get(0)), generate(roots.get(0), options));
+        assertEquals(2, libraryCache.getMisses());
+
+        assertEquals(expected, generateConcurrently(roots, options));
+        assertEquals(2, libraryCache.getMisses());
+        assertEquals(ROOTS * 2, libraryCache.getHits());
+        assertEquals(0, libraryCache.getEvictions());
+        assertEquals(2, libraryCache.getSize());
+
+        // A library whose content changed is a different library
+        Files.write(roots.get(0).resolve("shared/tweetFragment.graphql"),
+                TWEET_FRAGMENT.replace("body", "id").getBytes(StandardCharsets.UTF_8));
+        assertFalse(generate(roots.get(0), options).values().iterator().next().contains("body"));
+        assertEquals(3, libraryCache.getMisses());
+    }
+
+    @Test
+    public void stayWithinItsWeightUnderConcurrentRoots() throws Exception {
+        List<Path> roots = new ArrayList<>();
+        for (int i = 0; i < ROOTS; i++) {
+            roots.add(writeRoot(i, true));
+        }
+        Map<Path, Map<String, String>> expected = new HashMap<>();
+        for (Path root : roots) {
+            expected.put(root, generate(root, GenerationOptions.defaults()));
+        }
+
+        // Room for the shared user library and a handful of the others
+        long maxWeight = 6L * TWEET_FRAGMENT.length() * LibraryCache.ESTIMATED_AST_BYTES_PER_SOURCE_BYTE;
+        LibraryCache libraryCache = new LibraryCache(maxWeight);
+        GenerationOptions options = GenerationOptions.newOptions().libraryCache(libraryCache).parallelism(2).build();
+
+        for (int run = 0; run < 3; run++) {
+            assertEquals(expected, generateConcurrently(roots, options));
+            assertTrue(libraryCache.getWeightBytes() <= maxWeight);
+        }
+        assertEquals(ROOTS * 3 * 2, libraryCache.getHits() + libraryCache.getMisses());
+        assertTrue(libraryCache.getEvictions() > 0);
+        // Racing misses of the same library only store it once
+        assertTrue(libraryCache.getSize() <= libraryCache.getMisses() - libraryCache.getEvictions());
+    }
+
+    @Test
+    public void onlyCacheFilesWithoutOperations() throws Exception {
+        Path root = folder.newFolder("mixed").toPath();
+        write(root.resolve("shared/userFragment.graphql"), USER_FRAGMENT);
+        write(root.resolve("queries/mixed.graphql"),
+                "type Foo\n" +
+                        TWEET_FRAGMENT + "\n" +
+                        "query Q {\n" +
+                        "    Tweet(id: 1) {\n" +
+                        "        ...fullTweet\n" +
+                        "    }\n" +
+                        "}");
+        LibraryCache libraryCache = new LibraryCache(Long.MAX_VALUE);
+
+        Map<String, String> documents = generate(root, GenerationOptions.newOptions().libraryCache(libraryCache).build());
+
+        assertEquals(generate(root, GenerationOptions.defaults()), documents);
+        assertTrue(documents.containsKey(Paths.get("queries", "mixed.graphql").toString()));
+        assertEquals(1, libraryCache.getSize());
+    }
+
+    private Map<Path, Map<String, String>> generateConcurrently(List<Path> roots,
+                                                              GenerationOptions options) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            Map<Path, Future<Map<String, String>>> futures = new HashMap<>();
+            for (Path root : roots) {
+                futures.put(root, executor.submit(() -> generate(root, options)));
+            }
+            Map<Path, Map<String, String>> documents = new HashMap<>();
+            for (Map.Entry<Path, Future<Map<String, String>>> future : futures.entrySet()) {
+                documents.put(future.getKey(), future.getValue().get());
+            }
+            return documents;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * @return printed final documents by path relative to the root
+     */
+    private static Map<String, String> generate(Path root,
+                                                GenerationOptions options) {
+        List<File> files = new ArrayList<>(FileUtils.listFiles(root.toFile(), new String[]{"graphql"}, true));
+        Map<String, String> printed = new TreeMap<>();
+        for (Map.Entry<String, Document> document : DocumentReader.generateDocuments(files, root.toString(), options).entrySet()) {
+            printed.put(root.relativize(new File(document.getKey()).toPath()).toString(), AstPrinter.printAst(document.getValue()));
+        }
+        return printed;
+    }
+
+    /**
+     * @param ownTweetLibrary give the root a tweet library of its own instead of the one every root shares
+     */
+    private Path writeRoot(int index,
+                           boolean ownTweetLibrary) throws Exception {
+        Path root = folder.newFolder("root" + index).toPath();
+        write(root.resolve("shared/userFragment.graphql"), USER_FRAGMENT);
+        write(root.resolve("shared/tweetFragment.graphql"),
+                ownTweetLibrary ? TWEET_FRAGMENT.replace("body", "body" + index) : TWEET_FRAGMENT);
+        write(root.resolve("queries/query" + index + ".graphql"),
+                "query Q" + index + " {\n" +
+                        "    Tweet(id: " + index + ") {\n" +
+                        "        ...fullTweet @import(from: \"shared.tweetFragment\")\n" +
+                        "    }\n" +
+                        "}");
+        return root;
+    }
+
+    private static void write(Path path,
+                              String content) throws Exception {
+        Files.createDirectories(path.getParent());
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
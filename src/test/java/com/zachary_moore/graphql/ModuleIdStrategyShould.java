@@ -0,0 +1,94 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.AstPrinter;
+import graphql.language.Document;
+import graphql.language.FragmentDefinition;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ModuleIdStrategyShould {
+
+    private static final String USER_FRAGMENT =
+            "fragment author on User @export {\n" +
+                    "    first_name\n" +
+                    "}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void treatTheRootAsAPathNotAPattern() throws Exception {
+        File root = folder.newFolder("root[1]+");
+        File file = write(root, "shared/user.graphql", USER_FRAGMENT);
+
+        assertEquals("shared.user", new ModuleIds(root.getPath(), ModuleIdStrategy.dotted()).get(file));
+        assertEquals("shared.user", new ModuleIds(root.getPath() + File.separator, ModuleIdStrategy.dotted()).get(file));
+    }
+
+    @Test
+    public void onlyStripTheExtensionFromTheFileName() throws Exception {
+        File file = write(folder.getRoot(), "queries.graphql/user.graphql", USER_FRAGMENT);
+
+        assertEquals("queries.graphql.user", new ModuleIds(folder.getRoot().getPath(), ModuleIdStrategy.dotted()).get(file));
+    }
+
+    @Test
+    public void mapAliasedDirectories() throws Exception {
+        File aliased = write(folder.getRoot(), "shared/fragments/user.graphql", USER_FRAGMENT);
+        File other = write(folder.getRoot(), "shared/user.graphql", USER_FRAGMENT);
+
+        ModuleIds moduleIds = new ModuleIds(folder.getRoot().getPath(),
+                ModuleIdStrategy.separatedBy("/").withAlias("shared/fragments", "common"));
+        assertEquals("common/user", moduleIds.get(aliased));
+        assertEquals("shared/user", moduleIds.get(other));
+    }
+
+    @Test
+    public void resolveImportsWithACustomStrategy() throws Exception {
+        write(folder.getRoot(), "shared/fragments/user.graphql", USER_FRAGMENT);
+        File query = write(folder.getRoot(), "queries/queryA.graphql",
+                "query A {\n" +
+                        "    User(id: 1) {\n" +
+                        "        ...author @import(from: \"common/user\")\n" +
+                        "    }\n" +
+                        "}");
+        List<File> files = Arrays.asList(query, folder.getRoot().toPath().resolve("shared/fragments/user.graphql").toFile());
+
+        GenerationOptions options = GenerationOptions.newOptions()
+                .moduleIds(ModuleIdStrategy.separatedBy("/").withAlias("shared/fragments", "common"))
+                .build();
+        Map<String, Document> documents = DocumentReader.generateDocuments(files, folder.getRoot().getPath(), options);
+
+        Document document = documents.get(query.getPath());
+        assertEquals(1, document.getDefinitionsOfType(FragmentDefinition.class).size());
+        assertTrue(AstPrinter.printAst(document).contains("fragment author on User"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectFilesOutsideTheRoot() throws Exception {
+        File root = folder.newFolder("root");
+        File outside = write(folder.getRoot(), "rootOther/user.graphql", USER_FRAGMENT);
+
+        new ModuleIds(root.getPath(), ModuleIdStrategy.dotted()).get(outside);
+    }
+
+    private static File write(File root,
+                              String relativePath,
+                              String content) throws Exception {
+        Path path = root.toPath().resolve(relativePath);
+        Files.createDirectories(path.getParent());
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        return path.toFile();
+    }
+}
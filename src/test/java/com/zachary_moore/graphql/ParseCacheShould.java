@@ -0,0 +1,117 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.AstPrinter;
+import graphql.language.Document;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ParseCacheShould {
+
+    private static final String QUERY_WITH_EVERY_KIND_OF_NODE =
+            "query D($id: ID! = 2, $filters: [Filter!], $flag: Boolean) @cached(ttl: 1.5) {\n" +
+                    "    tweet: Tweet(id: $id, order: DESC, where: {author: \"a \\\"b\\\"\", tags: [\"x\", null], limit: -3}) {\n" +
+                    "        ...fullTweet @import(from: \"lib.tweetFragment\")\n" +
+                    "        ... on Retweet @include(if: $flag) {\n" +
+                    "            original { id }\n" +
+                    "        }\n" +
+                    "        ... @skip(if: false) {\n" +
+                    "            body\n" +
+                    "        }\n" +
+                    "    }\n" +
+                    "}\n" +
+                    "\n" +
+                    "mutation { like(id: 1) }\n" +
+                    "\n" +
+                    "fragment localTweet on Tweet @export {\n" +
+                    "    id\n" +
+                    "}";
+
+    private static final String QUERY_WITHOUT_IMPORTS =
+            "query F {\n" +
+                    "    Tweet(id: 2) {\n" +
+                    "        id\n" +
+                    "    }\n" +
+                    "}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void loadTheSameDocumentItParsed() throws Exception {
+        File file = write(QUERY_WITH_EVERY_KIND_OF_NODE);
+        ParseCache parseCache = ParseCache.open(cacheDirectory());
+        Document parsed = parseCache.parseFile(file);
+        parseCache.save(false);
+
+        ParseCache nextRun = ParseCache.open(cacheDirectory());
+        Document loaded = nextRun.parseFile(file);
+
+        assertEquals(0, nextRun.getParseCount());
+        assertEquals(AstPrinter.printAst(parsed), AstPrinter.printAst(loaded));
+    }
+
+    @Test
+    public void parseAgainWhenCacheIsCorrupt() throws Exception {
+        File file = write(QUERY_WITH_EVERY_KIND_OF_NODE);
+        ParseCache parseCache = ParseCache.open(cacheDirectory());
+        parseCache.parseFile(file);
+        parseCache.save(false);
+        Path cacheFile = cacheDirectory().resolve("documents.bin");
+        byte[] content = Files.readAllBytes(cacheFile);
+        content[content.length - 10] ^= 0x5A;
+        Files.write(cacheFile, content);
+
+        ParseCache nextRun = ParseCache.open(cacheDirectory());
+        Document document = nextRun.parseFile(file);
+
+        assertEquals(1, nextRun.getParseCount());
+        assertEquals(AstPrinter.printAst(DocumentReader.parseFile(file)), AstPrinter.printAst(document));
+    }
+
+    @Test
+    public void parseAgainWhenContentChanged() throws Exception {
+        File file = write(QUERY_WITH_EVERY_KIND_OF_NODE);
+        ParseCache parseCache = ParseCache.open(cacheDirectory());
+        parseCache.parseFile(file);
+        parseCache.save(false);
+        Files.write(file.toPath(), QUERY_WITHOUT_IMPORTS.getBytes(StandardCharsets.UTF_8));
+
+        ParseCache nextRun = ParseCache.open(cacheDirectory());
+        Document document = nextRun.parseFile(file);
+
+        assertEquals(1, nextRun.getParseCount());
+        assertEquals(AstPrinter.printAst(DocumentReader.parseFile(file)), AstPrinter.printAst(document));
+    }
+
+    @Test
+    public void matchGenerationWithoutCache() throws Exception {
+        File file = write(QUERY_WITHOUT_IMPORTS);
+        GenerationOptions options = GenerationOptions.newOptions().parseCache(cacheDirectory()).build();
+
+        DocumentReader.generateDocuments(Collections.singletonList(file), folder.getRoot().getPath(), options);
+        Map<String, Document> cached = DocumentReader.generateDocuments(Collections.singletonList(file), folder.getRoot().getPath(), options);
+
+        assertEquals(AstPrinter.printAst(DocumentReader.parseFile(file)), AstPrinter.printAst(cached.get(file.getPath())));
+    }
+
+    private File write(String content) throws IOException {
+        File file = folder.newFile("query.graphql");
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private Path cacheDirectory() {
+        return folder.getRoot().toPath().resolve("cache");
+    }
+}
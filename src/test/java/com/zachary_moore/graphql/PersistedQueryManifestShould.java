@@ -0,0 +1,90 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.AstPrinter;
+import graphql.language.Document;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class PersistedQueryManifestShould {
+
+    private static final String USER_FRAGMENT =
+            "fragment author on User @export {\n" +
+                    "    first_name\n" +
+                    "    avatar(size: 64, format: \"png\")\n" +
+                    "}";
+
+    private static final String QUERY_A =
+            "query A($id: ID!) {\n" +
+                    "    Tweet(id: $id) {\n" +
+                    "        ...author @import(from: \"userFragment\")\n" +
+                    "    }\n" +
+                    "}";
+
+    private static final String QUERY_B =
+            "query B {\n" +
+                    "    Tweet(id: 2) {\n" +
+                    "        body\n" +
+                    "        ...author @import(from: \"userFragment\")\n" +
+                    "    }\n" +
+                    "}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void printAndHashEveryDocument() throws Exception {
+        write("userFragment.graphql", USER_FRAGMENT);
+        write("queries/b.graphql", QUERY_B);
+        write("queries/a.graphql", QUERY_A);
+        List<File> files = new ArrayList<>(FileUtils.listFiles(folder.getRoot(), new String[]{"graphql"}, true));
+        Map<String, Document> documents = DocumentReader.generateDocuments(files, folder.getRoot().getPath());
+
+        PersistedQueryManifest manifest = PersistedQueryManifest.create(documents, folder.getRoot().getPath());
+
+        List<String> paths = new ArrayList<>();
+        for (PersistedQueryManifest.Entry entry : manifest.getEntries()) {
+            paths.add(entry.getPath());
+            Document document = documents.get(folder.getRoot().toPath().resolve(entry.getPath()).toString());
+            assertEquals(AstPrinter.printAstCompact(document), entry.getBody());
+            assertEquals(sha256(entry.getBody()), entry.getHash());
+        }
+        assertEquals(Arrays.asList("queries/a.graphql", "queries/b.graphql"), paths);
+        assertTrue(manifest.getEntries().get(1).getBody().endsWith(
+                "fragment author on User @export{first_name avatar(size:64,format:\"png\")}"));
+
+        String json = PersistedQueryManifest.create(documents, folder.getRoot().getPath(),
+                GenerationOptions.newOptions().parallelism(4).build()).toJson();
+        assertEquals(manifest.toJson(), json);
+        assertTrue(json.contains("\"body\": \"query B {Tweet(id:2) {body ...author@import(from:\\\"userFragment\\\")}}"));
+
+        Path manifestFile = folder.getRoot().toPath().resolve("manifest.json");
+        manifest.writeTo(manifestFile);
+        assertEquals(json, new String(Files.readAllBytes(manifestFile), StandardCharsets.UTF_8));
+    }
+
+    private static String sha256(String body) {
+        byte[] hash = DocumentIndex.hash(body.getBytes(StandardCharsets.UTF_8));
+        return String.format("%064x", new BigInteger(1, hash));
+    }
+
+    private void write(String relativePath,
+                       String content) throws Exception {
+        Path path = folder.getRoot().toPath().resolve(relativePath);
+        Files.createDirectories(path.getParent());
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
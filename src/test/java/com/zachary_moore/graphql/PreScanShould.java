@@ -0,0 +1,160 @@
+package com.zachary_moore.graphql;
+
+import graphql.language.AstPrinter;
+import graphql.language.Document;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class PreScanShould {
+
+    private static final String QUERY_WITH_IMPORT =
+            "query A {\n" +
+                    "    Tweet(id: 1) {\n" +
+                    "        ...author @import(from: \"userFragment\")\n" +
+                    "    }\n" +
+                    "}";
+
+    private static final String FRAGMENT_WITH_EXPORT =
+            "fragment author on User @export {\n" +
+                    "    first_name\n" +
+                    "}";
+
+    private static final String DIRECTIVES_ONLY_IN_STRINGS_AND_COMMENTS =
+            "# ...author @import(from: \"userFragment\")\n" +
+                    "fragment tweet on Tweet {\n" +
+                    "    body(format: \"@export\")\n" +
+                    "    title(format: \"\"\"\n" +
+                    "        \\\"\"\" @import\n" +
+                    "    \"\"\")\n" +
+                    "    ...importance @importance\n" +
+                    "}";
+
+    private static final String DIRECTIVES_WITH_IGNORED_CHARACTERS =
+            "fragment tweet on Tweet @\n" +
+                    "    # comment\n" +
+                    "    export {\n" +
+                    "    ...author @ , import(from: \"userFragment\")\n" +
+                    "}";
+
+    private static final String SCHEMA =
+            "\"\"\"A user\"\"\"\n" +
+                    "type User {\n" +
+                    "    first_name: String\n" +
+                    "}\n" +
+                    "scalar Date\n" +
+                    "union Result = User | Tweet\n" +
+                    "extend type Tweet @key(fields: \"id\") {\n" +
+                    "    author: User\n" +
+                    "}";
+
+    private static final String SHORTHAND_QUERY_AFTER_SCALAR =
+            "scalar Date\n" +
+                    "{\n" +
+                    "    Tweet(id: 1) { id }\n" +
+                    "}";
+
+    private static final String QUERY_AFTER_TYPES_WITHOUT_BODIES =
+            "type Foo\n" +
+                    "interface Node\n" +
+                    "enum Color\n" +
+                    "input Filter\n" +
+                    "type Bar implements Node & Named @key(fields: \"id\")\n" +
+                    "extend type Tweet @key(fields: \"id\")\n" +
+                    "extend schema @link(url: \"https://example.com\")\n" +
+                    "query Q {\n" +
+                    "    Tweet(id: 1) { id }\n" +
+                    "}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void classifyImportsAndExports() {
+        assertEquals(PreScan.Kind.IMPORTING, scan(QUERY_WITH_IMPORT).getKind());
+        assertEquals(PreScan.Kind.EXPORT_ONLY, scan(FRAGMENT_WITH_EXPORT).getKind());
+        assertEquals(PreScan.Kind.PLAIN, scan(SCHEMA).getKind());
+    }
+
+    @Test
+    public void ignoreDirectivesInStringsAndComments() {
+        PreScan preScan = scan(DIRECTIVES_ONLY_IN_STRINGS_AND_COMMENTS);
+
+        assertEquals(PreScan.Kind.PLAIN, preScan.getKind());
+        assertTrue(preScan.isInert());
+    }
+
+    @Test
+    public void findDirectivesAfterIgnoredCharacters() {
+        PreScan preScan = scan(DIRECTIVES_WITH_IGNORED_CHARACTERS);
+
+        assertTrue(preScan.hasImports());
+        assertTrue(preScan.hasExports());
+        assertFalse(preScan.mayHaveOperations());
+    }
+
+    @Test
+    public void findOperations() {
+        assertTrue(scan(QUERY_WITH_IMPORT).mayHaveOperations());
+        assertTrue(scan("{ Tweet(id: 1) { id } }").mayHaveOperations());
+        assertTrue(scan(FRAGMENT_WITH_EXPORT + "\nmutation { like(id: 1) }").mayHaveOperations());
+        assertTrue(scan(SHORTHAND_QUERY_AFTER_SCALAR).mayHaveOperations());
+        assertTrue(scan("type Foo\nquery Q { a }").mayHaveOperations());
+        assertTrue(scan("interface I\nquery Q { a }").mayHaveOperations());
+        assertTrue(scan("enum E\nquery Q { a }").mayHaveOperations());
+        assertTrue(scan("input I\nquery Q { a }").mayHaveOperations());
+        assertTrue(scan("extend type Foo @key(fields: \"id\")\nquery Q { a }").mayHaveOperations());
+        assertTrue(scan("extend schema @link(url: \"https://example.com\")\nquery Q { a }").mayHaveOperations());
+        assertFalse(scan("type Foo implements Node & Named\n{ a: Int }").mayHaveOperations());
+        assertTrue(scan(QUERY_AFTER_TYPES_WITHOUT_BODIES).mayHaveOperations());
+        assertFalse(scan(FRAGMENT_WITH_EXPORT).mayHaveOperations());
+        assertFalse(scan(SCHEMA).mayHaveOperations());
+    }
+
+    @Test
+    public void produceSameDocumentsAsWithoutPreScan() throws Exception {
+        write("userFragment.graphql", FRAGMENT_WITH_EXPORT);
+        write("query.graphql", QUERY_WITH_IMPORT);
+        write("plainQuery.graphql", "query B { Tweet(id: 2) { id } }");
+        write("schema.graphql", SCHEMA);
+        write("shorthand.graphql", SHORTHAND_QUERY_AFTER_SCALAR);
+        write("afterTypes.graphql", QUERY_AFTER_TYPES_WITHOUT_BODIES);
+        write("exportAfterType.graphql", "type Foo\n" + FRAGMENT_WITH_EXPORT.replace("author", "bodilessAuthor") + "\nquery C { User(id: 3) { ...bodilessAuthor } }");
+        List<File> files = new ArrayList<>(FileUtils.listFiles(folder.getRoot(), new String[]{"graphql"}, true));
+
+        Map<String, Document> withoutPreScan = DocumentReader.generateDocuments(files, folder.getRoot().getPath(),
+                GenerationOptions.newOptions().preScan(false).build());
+        GenerationOptions preScan = GenerationOptions.newOptions().preScan(true).build();
+        Map<String, Document> withPreScan = DocumentReader.generateDocuments(files, folder.getRoot().getPath(), preScan);
+        Map<String, Document> streamed = new HashMap<>();
+        DocumentReader.streamDocuments(files, folder.getRoot().getPath(), preScan, streamed::put);
+
+        assertEquals(withoutPreScan.keySet(), withPreScan.keySet());
+        assertEquals(withoutPreScan.keySet(), streamed.keySet());
+        for (String path : withoutPreScan.keySet()) {
+            assertEquals(AstPrinter.printAst(withoutPreScan.get(path)), AstPrinter.printAst(withPreScan.get(path)));
+            assertEquals(AstPrinter.printAst(withoutPreScan.get(path)), AstPrinter.printAst(streamed.get(path)));
+        }
+    }
+
+    private static PreScan scan(String content) {
+        return PreScan.scan(ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private void write(String relativePath,
+                       String content) throws Exception {
+        Files.write(folder.getRoot().toPath().resolve(relativePath), content.getBytes(StandardCharsets.UTF_8));
+    }
+}